@@ -0,0 +1,14 @@
+-- ID GENERATOR
+-- Accounts and Address ids come from this hi/lo table (pooled-lo, blocks of 50) instead of AUTO_INCREMENT,
+-- so Hibernate can batch inserts. Seeded past the current AUTO_INCREMENT values.
+CREATE TABLE IF NOT EXISTS `id_generator` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `id_generator` (`sequence_name`, `next_val`)
+SELECT 'accounts', COALESCE(MAX(`id`), 0) + 1 FROM `accounts`;
+
+INSERT INTO `id_generator` (`sequence_name`, `next_val`)
+SELECT 'address', COALESCE(MAX(`id`), 0) + 1 FROM `address`;
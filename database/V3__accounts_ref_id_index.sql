@@ -0,0 +1,6 @@
+-- ACCOUNT REFERENCE ID INDEX
+-- Reference lookups (GET /accounts/{id}/reference) filter on account_ref_id, without this key they scan the table.
+-- account_ref_id values are generated UUIDs, check for duplicates/blank values first if rows were inserted by hand:
+--   SELECT account_ref_id, COUNT(*) FROM accounts GROUP BY account_ref_id HAVING COUNT(*) > 1;
+ALTER TABLE `accounts`
+    ADD CONSTRAINT `uc_accounts_account_ref_id` UNIQUE (`account_ref_id`);
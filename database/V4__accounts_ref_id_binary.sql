@@ -0,0 +1,17 @@
+-- ACCOUNT REFERENCE ID AS BINARY(16)
+-- account_ref_id moves from varchar(255) utf8mb4 (36+ bytes per key, up to 1020 bytes of index width) to the
+-- 16 byte UUID, in the same (most significant bits first) byte order Hibernate binds java.util.UUID with.
+-- UNHEX(REPLACE(..)) is used rather than UUID_TO_BIN so the script also runs on early 8.0 servers.
+ALTER TABLE `accounts`
+    ADD COLUMN `account_ref_uuid` binary(16) NULL AFTER `account_ref_id`;
+
+UPDATE `accounts`
+SET `account_ref_uuid` = UNHEX(REPLACE(`account_ref_id`, '-', ''));
+
+ALTER TABLE `accounts`
+    DROP INDEX `uc_accounts_account_ref_id`,
+    DROP COLUMN `account_ref_id`;
+
+ALTER TABLE `accounts`
+    CHANGE COLUMN `account_ref_uuid` `account_ref_id` binary(16) NOT NULL,
+    ADD CONSTRAINT `uc_accounts_account_ref_id` UNIQUE (`account_ref_id`);
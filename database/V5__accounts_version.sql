@@ -0,0 +1,4 @@
+-- ACCOUNTS OPTIMISTIC LOCK VERSION
+-- Backs @Version on Accounts and the ETag of PUT /accounts/{id}. Existing rows start at version 0.
+ALTER TABLE `accounts`
+    ADD COLUMN `version` bigint NOT NULL DEFAULT 0 AFTER `updated_dt`;
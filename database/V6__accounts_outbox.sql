@@ -0,0 +1,15 @@
+-- ACCOUNTS OUTBOX
+-- Change events written in the same transaction as the account change, relayed to the change sink and deleted.
+-- Ids come from id_generator like accounts and address.
+CREATE TABLE IF NOT EXISTS `accounts_outbox` (
+  `id` bigint NOT NULL,
+  `type` varchar(16) NOT NULL,
+  `account_id` bigint NOT NULL,
+  `account_ref_id` binary(16) NOT NULL,
+  `version` bigint DEFAULT NULL,
+  `created_dt` datetime(6) NOT NULL,
+  `payload` text,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `id_generator` (`sequence_name`, `next_val`) VALUES ('accounts_outbox', 1);
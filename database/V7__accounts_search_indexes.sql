@@ -0,0 +1,8 @@
+-- ACCOUNT SEARCH INDEXES
+-- GET /accounts/search matches prefixes (LIKE 'value%'), each criterion is a range scan on one of these keys.
+-- email_address prefixes use uc_accounts_emailaddress. The trailing id lets MySQL read the keyset cursor from the index.
+CREATE INDEX `ix_accounts_last_name` ON `accounts` (`last_name`, `first_name`, `id`);
+CREATE INDEX `ix_accounts_first_name` ON `accounts` (`first_name`, `id`);
+CREATE INDEX `ix_address_city` ON `address` (`city`);
+CREATE INDEX `ix_address_state_city` ON `address` (`state`, `city`);
+CREATE INDEX `ix_address_postal_code` ON `address` (`postal_code`);
@@ -0,0 +1,9 @@
+-- ACCOUNTS CHANGE FEED
+-- Relayed outbox rows are kept and numbered with their position in the change feed (feed_sequence, NULL until
+-- relayed). GET /accounts/changes pages by feed_sequence on every instance, rows older than
+-- accounts.changes.retention are deleted. The accounts_changes row is the feed sequence counter.
+ALTER TABLE `accounts_outbox` ADD COLUMN `feed_sequence` bigint DEFAULT NULL AFTER `created_dt`;
+CREATE UNIQUE INDEX `ux_accounts_outbox_feed_sequence` ON `accounts_outbox` (`feed_sequence`);
+CREATE INDEX `ix_accounts_outbox_created_dt` ON `accounts_outbox` (`created_dt`);
+
+INSERT INTO `id_generator` (`sequence_name`, `next_val`) VALUES ('accounts_changes', 1);
@@ -23,12 +23,40 @@ CREATE TABLE accounts
     first_name     VARCHAR(200) DEFAULT '' NOT NULL,
     last_name      VARCHAR(200) DEFAULT '' NOT NULL,
     email_address  VARCHAR(200) DEFAULT '' NOT NULL,
-    account_ref_id VARCHAR(255) NOT NULL   DEFAULT '',
+    account_ref_id BINARY(16)              NOT NULL,
     created_dt     datetime                NULL,
     updated_dt     datetime                NULL,
+    version        BIGINT       DEFAULT 0  NOT NULL,
     CONSTRAINT pk_accounts PRIMARY KEY (id)
 );
 
+CREATE TABLE id_generator
+(
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT       NULL,
+    CONSTRAINT pk_id_generator PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO id_generator (sequence_name, next_val) VALUES ('accounts', 1), ('address', 1), ('accounts_outbox', 1),
+                                                           ('accounts_changes', 1);
+
+CREATE TABLE accounts_outbox
+(
+    id             BIGINT       NOT NULL,
+    type           VARCHAR(16)  NOT NULL,
+    account_id     BIGINT       NOT NULL,
+    account_ref_id BINARY(16)   NOT NULL,
+    version        BIGINT       NULL,
+    created_dt     datetime(6)  NOT NULL,
+    feed_sequence  BIGINT       NULL,
+    payload        TEXT         NULL,
+    CONSTRAINT pk_accounts_outbox PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_accounts_outbox_feed_sequence ON accounts_outbox (feed_sequence);
+
+CREATE INDEX ix_accounts_outbox_created_dt ON accounts_outbox (created_dt);
+
 CREATE TABLE accounts_addresses
 (
     accounts_id  BIGINT NOT NULL,
@@ -42,8 +70,21 @@ ALTER TABLE accounts_addresses
 ALTER TABLE accounts
     ADD CONSTRAINT uc_accounts_emailaddress UNIQUE (email_address);
 
+ALTER TABLE accounts
+    ADD CONSTRAINT uc_accounts_account_ref_id UNIQUE (account_ref_id);
+
 ALTER TABLE accounts_addresses
     ADD CONSTRAINT fk_accadd_on_accounts FOREIGN KEY (accounts_id) REFERENCES accounts (id);
 
 ALTER TABLE accounts_addresses
-    ADD CONSTRAINT fk_accadd_on_address FOREIGN KEY (addresses_id) REFERENCES address (id);
\ No newline at end of file
+    ADD CONSTRAINT fk_accadd_on_address FOREIGN KEY (addresses_id) REFERENCES address (id);
+
+CREATE INDEX ix_accounts_last_name ON accounts (last_name, first_name, id);
+
+CREATE INDEX ix_accounts_first_name ON accounts (first_name, id);
+
+CREATE INDEX ix_address_city ON address (city);
+
+CREATE INDEX ix_address_state_city ON address (state, city);
+
+CREATE INDEX ix_address_postal_code ON address (postal_code);
@@ -0,0 +1,66 @@
+// k6 load test for the accounts service, run it once per threading mode and compare the summaries:
+//   k6 run -e BASE_URL=http://localhost:8001 -e MODE=platform --summary-export=loadtest/platform.json loadtest/accounts.js
+//   k6 run -e BASE_URL=http://localhost:8001 -e MODE=virtual  --summary-export=loadtest/virtual.json  loadtest/accounts.js
+// The ramp goes past Tomcat's 200 platform threads, which is where the two modes diverge.
+import http from 'k6/http';
+import { check } from 'k6';
+import { SharedArray } from 'k6/data';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8001';
+const MODE = __ENV.MODE || 'unknown';
+const SEED = 500;
+
+export const options = {
+    scenarios: {
+        ramp: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: 100 },
+                { duration: '1m', target: 400 },
+                { duration: '1m', target: 800 },
+                { duration: '30s', target: 0 },
+            ],
+        },
+    },
+    tags: { mode: MODE },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{endpoint:findById}': ['p(99)<500'],
+    },
+};
+
+const names = new SharedArray('names', () => Array.from({ length: 100 }, (_, i) => `Load${i}`));
+
+export function setup() {
+    const ids = [];
+    for (let i = 0; i < SEED; i++) {
+        const res = http.post(`${BASE_URL}/accounts`, JSON.stringify(account(`seed-${Date.now()}-${i}`)),
+            { headers: { 'Content-Type': 'application/json' } });
+        if (res.status === 200) ids.push(res.json('id'));
+    }
+    return { ids };
+}
+
+export default function (data) {
+    const roll = Math.random();
+    if (roll < 0.7) {
+        const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+        check(http.get(`${BASE_URL}/accounts/${id}`, { tags: { endpoint: 'findById' } }), { 'findById 200': r => r.status === 200 });
+    } else if (roll < 0.9) {
+        check(http.get(`${BASE_URL}/accounts?limit=50`, { tags: { endpoint: 'findAll' } }), { 'findAll 200': r => r.status === 200 });
+    } else {
+        const res = http.post(`${BASE_URL}/accounts`, JSON.stringify(account(`${__VU}-${__ITER}-${Date.now()}`)),
+            { headers: { 'Content-Type': 'application/json' }, tags: { endpoint: 'create' } });
+        check(res, { 'create 200': r => r.status === 200 });
+    }
+}
+
+function account(suffix) {
+    return {
+        firstName: names[Math.floor(Math.random() * names.length)],
+        lastName: 'Runner',
+        emailAddress: `load-${suffix}@example.com`,
+        addresses: [{ address1: '1 Load Street', city: 'Food Forest City', state: 'FL', postalCode: '33000', country: 'US' }],
+    };
+}
@@ -0,0 +1,40 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: accountRefId generation throughput, single threaded and under contention. UUID.randomUUID
+// shares one SecureRandom across threads, the time-ordered generator draws from ThreadLocalRandom.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountRefIdGeneratorBenchmark {
+    final AccountRefIdGenerator random = new RandomAccountRefIdGenerator();
+    final AccountRefIdGenerator timeOrdered = new TimeOrderedAccountRefIdGenerator();
+
+    @Benchmark
+    @Threads(1)
+    public UUID random_1Thread() {
+        return random.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID random_8Threads() {
+        return random.next();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UUID timeOrdered_1Thread() {
+        return timeOrdered.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID timeOrdered_8Threads() {
+        return timeOrdered.next();
+    }
+}
@@ -0,0 +1,92 @@
+package com.kinandcarta.ecommerce;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: reference lookups (binary(16) UUIDs, as stored since V4) against an H2 accounts table of growing size. indexedLookup goes through the
+// uc_accounts_account_ref_id unique index (flat, O(log n)), scanLookup filters the same values on an
+// unindexed copy of the column, which is what every lookup did before V3__accounts_ref_id_index.sql.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class AccountRefIdLookupBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    Connection connection;
+    PreparedStatement indexed;
+    PreparedStatement scan;
+    byte[][] refs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:refs" + rows + ";DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection("sa", "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE accounts (id BIGINT NOT NULL PRIMARY KEY, account_ref_id BINARY(16) NOT NULL, "
+                    + "account_ref_id_unindexed BINARY(16) NOT NULL, email_address VARCHAR(200) NOT NULL)");
+            ddl.execute("ALTER TABLE accounts ADD CONSTRAINT uc_accounts_account_ref_id UNIQUE (account_ref_id)");
+        }
+        refs = new byte[Math.min(rows, 4096)][];
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO accounts VALUES (?, ?, ?, ?)")) {
+            for (int id = 0; id < rows; id++) {
+                byte[] ref = toBytes(UUID.randomUUID());
+                if (id < refs.length) refs[id] = ref;
+                insert.setLong(1, id);
+                insert.setBytes(2, ref);
+                insert.setBytes(3, ref);
+                insert.setString(4, "user" + id + "@example.com");
+                insert.addBatch();
+                if (id % 1000 == 999) insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        indexed = connection.prepareStatement("SELECT id, email_address FROM accounts WHERE account_ref_id = ?");
+        scan = connection.prepareStatement("SELECT id, email_address FROM accounts WHERE account_ref_id_unindexed = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long indexedLookup() throws SQLException {
+        return lookup(indexed);
+    }
+
+    @Benchmark
+    @Measurement(iterations = 2, time = 2)
+    public long scanLookup() throws SQLException {
+        return lookup(scan);
+    }
+
+    private long lookup(final PreparedStatement statement) throws SQLException {
+        statement.setBytes(1, refs[ThreadLocalRandom.current().nextInt(refs.length)]);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1L;
+        }
+    }
+
+    private static byte[] toBytes(final UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+}
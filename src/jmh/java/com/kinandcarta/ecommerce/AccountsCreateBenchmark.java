@@ -0,0 +1,67 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// NOTES: POST /accounts end to end, HTTP, Jackson, validation, AccountsController.create and the H2 insert.
+// Every invocation uses a new email address, emailAddress is unique.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsCreateBenchmark {
+    @Param({"0", "5"})
+    int addresses;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    URI accounts;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("create" + addresses, WebApplicationType.SERVLET);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        accounts = URI.create("http://localhost:" + port + "/accounts");
+        client = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int create() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(accounts)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body(sequence.incrementAndGet())))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("POST /accounts returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    private String body(final long n) {
+        StringBuilder json = new StringBuilder(256)
+                .append("{\"firstName\":\"First").append(n)
+                .append("\",\"lastName\":\"Last").append(n)
+                .append("\",\"emailAddress\":\"create").append(n).append("@example.com\",\"addresses\":[");
+        for (int a = 0; a < addresses; a++) {
+            if (a > 0) json.append(',');
+            json.append("{\"address1\":\"").append(a).append(" Main St\",\"city\":\"Food Forest City\",")
+                    .append("\"state\":\"FL\",\"postalCode\":\"33000\",\"country\":\"US\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+// NOTES: GET /accounts at growing table sizes, through AccountsHandler with two addresses per account.
+// firstPage and lastPage are keyset pages of 100 and should stay flat as the table grows, streamAll
+// (application/x-ndjson) reads every row and grows linearly.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class AccountsFindAllBenchmark {
+    static final int PAGE = 100;
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    AccountsHandler handler;
+    Long lastPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("findall" + rows, WebApplicationType.NONE);
+        BenchmarkApplication.seed(context, rows, 2);
+        handler = context.getBean(AccountsHandler.class);
+        // the id just before the last PAGE rows, so lastPage returns a full final page
+        lastPageCursor = context.getBean(AccountsRepository.class)
+                .findAll(PageRequest.of(PAGE, 1, Sort.by(Sort.Direction.DESC, "id")))
+                .getContent().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CursorPage<Accounts> firstPage() {
+        return handler.findAll(null, PAGE);
+    }
+
+    @Benchmark
+    public CursorPage<Accounts> lastPage() {
+        return handler.findAll(lastPageCursor, PAGE);
+    }
+
+    @Benchmark
+    public void streamAll(final Blackhole blackhole) {
+        handler.streamAll(blackhole::consume);
+    }
+}
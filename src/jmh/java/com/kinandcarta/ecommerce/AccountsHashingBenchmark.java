@@ -0,0 +1,86 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: cost of materialising a findAll result of N accounts. legacyHashSet reproduces the old
+// constant class hashCode (every entity in one bucket), naturalIdHashSet the accountRefId hash and
+// orderedList what AccountsHandler.findAll returns today.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsHashingBenchmark {
+    @Param({"100", "1000", "10000"})
+    int rows;
+
+    List<Accounts> accounts;
+    List<LegacyIdentity> legacyAccounts;
+
+    @Setup
+    public void setUp() {
+        accounts = new ArrayList<>(rows);
+        legacyAccounts = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            Accounts account = Accounts.builder()
+                    .id(id)
+                    .accountRefId(UUID.randomUUID())
+                    .firstName("First" + id)
+                    .lastName("Last" + id)
+                    .emailAddress("user" + id + "@example.com")
+                    .build();
+            accounts.add(account);
+            legacyAccounts.add(new LegacyIdentity(account));
+        }
+    }
+
+    @Benchmark
+    public Set<LegacyIdentity> legacyHashSet() {
+        return new HashSet<>(legacyAccounts);
+    }
+
+    @Benchmark
+    public Set<Accounts> naturalIdHashSet() {
+        return new HashSet<>(accounts);
+    }
+
+    @Benchmark
+    public List<Accounts> orderedList() {
+        return new ArrayList<>(accounts);
+    }
+
+    @Benchmark
+    public void naturalIdContains(final Blackhole blackhole) {
+        Set<Accounts> set = new HashSet<>(accounts);
+        for (Accounts account : accounts) {
+            blackhole.consume(set.contains(account));
+        }
+    }
+
+    // Previous Accounts identity: id based equals, class based hashCode.
+    static final class LegacyIdentity {
+        private final Accounts account;
+
+        LegacyIdentity(final Accounts account) {
+            this.account = account;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LegacyIdentity other)) return false;
+            return account.getId() != null && account.getId().equals(other.account.getId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Accounts.class.hashCode();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: Jackson cost of an account payload as the addresses grow, with the same ObjectMapper defaults
+// Spring Boot configures for the controller.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountsJsonBenchmark {
+    @Param({"0", "10", "100"})
+    int addresses;
+
+    ObjectMapper objectMapper;
+    Accounts account;
+    byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        account = BenchmarkApplication.account(1, addresses);
+        account.setId(1L);
+        account.setAccountRefId(new TimeOrderedAccountRefIdGenerator().next());
+        long addressId = 1;
+        for (Address address : account.getAddresses()) {
+            address.setId(addressId++);
+        }
+        json = objectMapper.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public Accounts deserialize() throws IOException {
+        return objectMapper.readValue(json, Accounts.class);
+    }
+}
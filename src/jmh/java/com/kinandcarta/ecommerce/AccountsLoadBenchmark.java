@@ -0,0 +1,74 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// NOTES: requests per second on the create and read paths with 16 concurrent clients, more than the pool has
+// connections, so the pool size, the connection wait and the statement and batch settings show up in the throughput.
+// Reads pick a random one of the seeded accounts (most of them served from the accounts cache after the warmup).
+// Run it with BENCHMARK_DATASOURCE_URL pointing at MySQL to measure the driver settings, H2 ignores them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class AccountsLoadBenchmark {
+    static final int SEEDED = 10_000;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    URI accounts;
+    long[] ids;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("load", WebApplicationType.SERVLET);
+        BenchmarkApplication.seed(context, SEEDED, 1);
+        ids = context.getBean(AccountsRepository.class).findAll().stream().mapToLong(Accounts::getId).toArray();
+        accounts = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/accounts");
+        client = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int create() throws IOException, InterruptedException {
+        long n = sequence.incrementAndGet();
+        return ok(HttpRequest.newBuilder(accounts)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"firstName\":\"First" + n + "\",\"lastName\":\"Last" + n
+                        + "\",\"emailAddress\":\"load" + n + "@example.com\",\"addresses\":[{\"address1\":\"1 Main St\","
+                        + "\"city\":\"Food Forest City\",\"state\":\"FL\",\"postalCode\":\"33000\",\"country\":\"US\"}]}"))
+                .build());
+    }
+
+    @Benchmark
+    public int read() throws IOException, InterruptedException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return ok(HttpRequest.newBuilder(URI.create(accounts + "/" + id)).header("Accept", "application/json").GET().build());
+    }
+
+    private int ok(final HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
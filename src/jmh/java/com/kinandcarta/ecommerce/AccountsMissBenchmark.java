@@ -0,0 +1,74 @@
+package com.kinandcarta.ecommerce;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: the miss path end to end, GETs for accounts that do not exist answered with a 404, the traffic of other
+// services probing for accounts. byId and byRef query H2 (misses are not cached), byEmail is answered from the query
+// cache after its first miss. Compare with a results.json of the previous commit (gradle jmhCompare) to see
+// what the exception per miss, its stack trace and its error log cost.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class AccountsMissBenchmark {
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    HttpRequest byId;
+    HttpRequest byRef;
+    HttpRequest byEmail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("miss", WebApplicationType.SERVLET);
+        BenchmarkApplication.seed(context, 100, 1);
+        String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/accounts";
+        client = HttpClient.newHttpClient();
+        byId = get(base + "/" + Long.MAX_VALUE);
+        byRef = get(base + "/" + UUID.randomUUID() + "/reference");
+        byEmail = get(base + "/by-email?email=nobody@example.com");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int byId() throws IOException, InterruptedException {
+        return notFound(byId);
+    }
+
+    @Benchmark
+    public int byRef() throws IOException, InterruptedException {
+        return notFound(byRef);
+    }
+
+    @Benchmark
+    public int byEmail() throws IOException, InterruptedException {
+        return notFound(byEmail);
+    }
+
+    private int notFound(final HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 404) {
+            throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    private static HttpRequest get(final String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Accept", "application/json").GET().build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: one account response written the way MappingJackson2HttpMessageConverter writes it (a generator over the
+// response stream, here a stream that drops the bytes). entity is the Accounts entity through Boot's default
+// ObjectMapper, response copies it to AccountsResponse and writes that with Blackbird registered. Run with -prof gc,
+// gc.alloc.rate.norm is the bytes allocated per serialized account.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountsResponseBenchmark {
+    @Param({"1", "5", "50"})
+    int addresses;
+
+    ObjectMapper entityMapper;
+    ObjectMapper responseMapper;
+    ObjectWriter entityWriter;
+    ObjectWriter responseWriter;
+    Accounts account;
+    final Sink sink = new Sink();
+
+    @Setup
+    public void setUp() {
+        // Spring Boot's defaults write dates as ISO-8601 strings
+        entityMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        responseMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).modulesToInstall(new BlackbirdModule()).build();
+        entityWriter = entityMapper.writerFor(Accounts.class);
+        responseWriter = responseMapper.writerFor(AccountsResponse.class);
+
+        account = BenchmarkApplication.account(1, addresses);
+        account.setId(1L);
+        account.setAccountRefId(new TimeOrderedAccountRefIdGenerator().next());
+        account.setCreateDateTime(Instant.parse("2026-01-02T03:04:05.123456Z"));
+        account.setUpdateDateTime(Instant.parse("2026-01-03T03:04:05.123456Z"));
+        account.setVersion(3L);
+        long addressId = 1;
+        for (Address address : account.getAddresses()) {
+            address.setId(addressId++);
+        }
+    }
+
+    @Benchmark
+    public long entity() throws IOException {
+        try (JsonGenerator generator = entityMapper.getFactory().createGenerator(sink, JsonEncoding.UTF8)) {
+            entityWriter.writeValue(generator, account);
+        }
+        return sink.written;
+    }
+
+    @Benchmark
+    public long response() throws IOException {
+        try (JsonGenerator generator = responseMapper.getFactory().createGenerator(sink, JsonEncoding.UTF8)) {
+            responseWriter.writeValue(generator, AccountsResponse.of(account));
+        }
+        return sink.written;
+    }
+
+    // the servlet output stream, counts and drops, closing is a no-op like the converter's non-closing wrapper
+    static final class Sink extends OutputStream {
+        long written;
+
+        @Override
+        public void write(final int b) {
+            written++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            written += len;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.kinandcarta.ecommerce;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: GET /accounts/search statements (the shapes AccountsSearchRepositoryImpl produces: the ids of a page of 100
+// plus one, then the accounts of the page with their addresses) against H2 in MySQL mode with the V7 search indexes.
+// Names and cities are random six-letter words, a four-letter name prefix matches a handful of accounts, a three-letter
+// city prefix about rows / 17576.
+// SampleTime reports the percentiles, read p0.99 from the results. Setup of the default 2M accounts takes a while.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class AccountsSearchBenchmark {
+    private static final int PAGE = 100;
+
+    @Param({"2000000"})
+    int rows;
+
+    Connection connection;
+    PreparedStatement byLastName;
+    PreparedStatement byCity;
+    PreparedStatement accounts;
+    String[] lastNames;
+    String[] cities;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:search" + rows + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection("sa", "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE accounts (id BIGINT NOT NULL PRIMARY KEY, first_name VARCHAR(200) NOT NULL, "
+                    + "last_name VARCHAR(200) NOT NULL, email_address VARCHAR(200) NOT NULL)");
+            ddl.execute("CREATE TABLE address (id BIGINT NOT NULL PRIMARY KEY, city VARCHAR(200) NOT NULL, "
+                    + "state VARCHAR(2) NOT NULL, postal_code VARCHAR(10) NOT NULL)");
+            ddl.execute("CREATE TABLE accounts_addresses (accounts_id BIGINT NOT NULL, addresses_id BIGINT NOT NULL, "
+                    + "PRIMARY KEY (accounts_id, addresses_id))");
+            ddl.execute("ALTER TABLE accounts_addresses ADD CONSTRAINT uc_accounts_addresses_addresses UNIQUE (addresses_id)");
+            ddl.execute("ALTER TABLE accounts ADD CONSTRAINT uc_accounts_emailaddress UNIQUE (email_address)");
+            ddl.execute("CREATE INDEX ix_accounts_last_name ON accounts (last_name, first_name, id)");
+            ddl.execute("CREATE INDEX ix_accounts_first_name ON accounts (first_name, id)");
+            ddl.execute("CREATE INDEX ix_address_city ON address (city)");
+            ddl.execute("CREATE INDEX ix_address_state_city ON address (state, city)");
+            ddl.execute("CREATE INDEX ix_address_postal_code ON address (postal_code)");
+        }
+
+        Random random = new Random(42);
+        lastNames = new String[4096];
+        cities = new String[4096];
+        connection.setAutoCommit(false);
+        try (PreparedStatement account = connection.prepareStatement("INSERT INTO accounts VALUES (?, ?, ?, ?)");
+             PreparedStatement address = connection.prepareStatement("INSERT INTO address VALUES (?, ?, ?, ?)");
+             PreparedStatement link = connection.prepareStatement("INSERT INTO accounts_addresses VALUES (?, ?)")) {
+            for (int id = 1; id <= rows; id++) {
+                String lastName = word(random);
+                String city = word(random);
+                if (id <= lastNames.length) {
+                    lastNames[id - 1] = lastName.substring(0, 4);
+                    cities[id - 1] = city.substring(0, 3);
+                }
+                account.setLong(1, id);
+                account.setString(2, word(random));
+                account.setString(3, lastName);
+                account.setString(4, "user" + id + "@example.com");
+                account.addBatch();
+                address.setLong(1, id);
+                address.setString(2, city);
+                address.setString(3, "FL");
+                address.setString(4, String.valueOf(10000 + random.nextInt(90000)));
+                address.addBatch();
+                link.setLong(1, id);
+                link.setLong(2, id);
+                link.addBatch();
+                if (id % 1000 == 0) {
+                    account.executeBatch();
+                    address.executeBatch();
+                    link.executeBatch();
+                }
+            }
+            account.executeBatch();
+            address.executeBatch();
+            link.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        byLastName = connection.prepareStatement("SELECT a.id FROM accounts a "
+                + "WHERE a.last_name LIKE ? ESCAPE '\\' AND a.id > ? ORDER BY a.id LIMIT " + (PAGE + 1));
+        byCity = connection.prepareStatement("SELECT DISTINCT a.id FROM accounts a "
+                + "JOIN accounts_addresses aa ON aa.accounts_id = a.id JOIN address ad ON ad.id = aa.addresses_id "
+                + "WHERE ad.city LIKE ? ESCAPE '\\' AND a.id > ? ORDER BY a.id LIMIT " + (PAGE + 1));
+        accounts = connection.prepareStatement("SELECT a.id, a.first_name, a.last_name, a.email_address, ad.id, ad.city, "
+                + "ad.state, ad.postal_code FROM accounts a LEFT JOIN accounts_addresses aa ON aa.accounts_id = a.id "
+                + "LEFT JOIN address ad ON ad.id = aa.addresses_id WHERE a.id IN (" + "?, ".repeat(PAGE) + "?) ORDER BY a.id");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void searchByLastNamePrefix(final Blackhole blackhole) throws SQLException {
+        search(byLastName, lastNames[ThreadLocalRandom.current().nextInt(lastNames.length)] + "%", blackhole);
+    }
+
+    @Benchmark
+    public void searchByCityPrefix(final Blackhole blackhole) throws SQLException {
+        search(byCity, cities[ThreadLocalRandom.current().nextInt(cities.length)] + "%", blackhole);
+    }
+
+    private void search(final PreparedStatement statement, final String prefix, final Blackhole blackhole) throws SQLException {
+        statement.setString(1, prefix);
+        statement.setLong(2, 0L);
+        List<Long> ids = new ArrayList<>(PAGE + 1);
+        try (ResultSet page = statement.executeQuery()) {
+            while (page.next()) ids.add(page.getLong(1));
+        }
+        if (ids.isEmpty()) return;
+        for (int i = 0; i <= PAGE; i++) {
+            accounts.setLong(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        try (ResultSet found = accounts.executeQuery()) {
+            while (found.next()) {
+                blackhole.consume(found.getString(3));
+                blackhole.consume(found.getString(6));
+            }
+        }
+    }
+
+    private static String word(final Random random) {
+        char[] letters = new char[6];
+        letters[0] = (char) ('A' + random.nextInt(26));
+        for (int i = 1; i < letters.length; i++) letters[i] = (char) ('a' + random.nextInt(26));
+        return new String(letters);
+    }
+}
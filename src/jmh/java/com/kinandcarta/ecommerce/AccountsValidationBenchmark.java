@@ -0,0 +1,49 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// NOTES: AccountsHandler.validate runs on every create, update and bulk import record. valid is the common
+// case, invalid builds a violation (and its interpolated message) for each broken constraint.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountsValidationBenchmark {
+    ValidatorFactory validatorFactory;
+    AccountsHandler handler;
+    Accounts valid;
+    Accounts invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        // validate only touches the validator, the repository is never called
+        handler = new AccountsHandler(null, validatorFactory.getValidator(), new AccountsCache(1, Duration.ofMinutes(1)), null, null);
+        valid = BenchmarkApplication.account(1, 1);
+        valid.setAccountRefId(new TimeOrderedAccountRefIdGenerator().next());
+        invalid = BenchmarkApplication.account(2, 1);
+        invalid.setFirstName("X");
+        invalid.setEmailAddress("not-an-email");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Accounts>> valid() {
+        return handler.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Accounts>> invalid() {
+        return handler.validate(invalid);
+    }
+}
@@ -0,0 +1,87 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// NOTES: boots the real service against an in-memory H2 database named after the benchmark, so each trial
+// starts from an empty schema. Command line arguments win over application.yml (MySQL). With BENCHMARK_DATASOURCE_URL
+// set the service runs against that database instead (with BENCHMARK_DATASOURCE_USERNAME and _PASSWORD), and
+// application.yml's MySQL settings apply. Point it at a schema built from database/ without accounts, the benchmarks
+// seed and create them.
+final class BenchmarkApplication {
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(final String database, final WebApplicationType webApplicationType) {
+        List<String> args = new ArrayList<>();
+        String url = System.getenv("BENCHMARK_DATASOURCE_URL");
+        if (url != null) {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + System.getenv().getOrDefault("BENCHMARK_DATASOURCE_USERNAME", "root"));
+            args.add("--spring.datasource.password=" + System.getenv().getOrDefault("BENCHMARK_DATASOURCE_PASSWORD", ""));
+        } else {
+            args.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        }
+        args.addAll(List.of("--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--eureka.client.enabled=false",
+                "--server.port=0"));
+        return new SpringApplicationBuilder(AccountsServiceApplication.class)
+                .web(webApplicationType)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    // Seeds through the bulk import path, so ids and the id_generator table stay consistent.
+    static void seed(final ConfigurableApplicationContext context, final int rows, final int addressesPerAccount) {
+        StringBuilder ndjson = new StringBuilder(rows * 200);
+        for (int i = 0; i < rows; i++) {
+            ndjson.append("{\"firstName\":\"First").append(i)
+                    .append("\",\"lastName\":\"Last").append(i)
+                    .append("\",\"emailAddress\":\"seed").append(i).append("@example.com\",\"addresses\":[");
+            for (int a = 0; a < addressesPerAccount; a++) {
+                if (a > 0) ndjson.append(',');
+                ndjson.append("{\"address1\":\"").append(a).append(" Main St\",\"city\":\"Food Forest City\",")
+                        .append("\"state\":\"FL\",\"postalCode\":\"33000\",\"country\":\"US\"}");
+            }
+            ndjson.append("]}\n");
+        }
+        BulkImportReport report = context.getBean(AccountsBulkImporter.class)
+                .importAccounts(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+        if (report.created() != rows) {
+            throw new IllegalStateException("seeded " + report.created() + " of " + rows + " accounts");
+        }
+    }
+
+    static Accounts account(final long n, final int addresses) {
+        List<Address> list = new ArrayList<>(addresses);
+        for (long a = 0; a < addresses; a++) {
+            list.add(Address.builder()
+                    .address1(a + " Main St")
+                    .address2("")
+                    .city("Food Forest City")
+                    .state("FL")
+                    .province("")
+                    .postalCode("33000")
+                    .country("US").build());
+        }
+        return Accounts.builder()
+                .firstName("First" + n)
+                .lastName("Last" + n)
+                .emailAddress("user" + n + "@example.com")
+                .addresses(Set.copyOf(list))
+                .build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.UUID;
+
+// NOTES: selected with accounts.ref-id.generator, time-ordered (default) or random.
+public interface AccountRefIdGenerator {
+    UUID next();
+}
@@ -2,19 +2,26 @@ package com.kinandcarta.ecommerce;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
 
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 
 @Getter
 @Setter
@@ -23,18 +30,42 @@ import java.util.Set;
 @Builder
 @AllArgsConstructor
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+        @Index(name = "ix_accounts_last_name", columnList = "lastName, firstName, id"),
+        @Index(name = "ix_accounts_first_name", columnList = "firstName, id")},
+        uniqueConstraints = @UniqueConstraint(name = Accounts.EMAIL_ADDRESS_CONSTRAINT, columnNames = "emailAddress"))
+@DynamicUpdate
+// NOTES: second-level cache, regions are sized in application.conf. READ_WRITE soft-locks an entry from flush to
+// commit, so a read concurrent with update (address replacement included) goes to the database instead of seeing a
+// half-written account. Bulk updates (updateFields, patchFields) evict the whole accounts region only when their
+// transaction completes, the account they return is re-read past the region (findByIdBypassingCache).
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accounts")
+@NaturalIdCache(region = "accounts-ref-id")
 @Slf4j
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Accounts {
+    // unique key on email_address, the same name in database/schema.sql and the migrations
+    static final String EMAIL_ADDRESS_CONSTRAINT = "uc_accounts_emailaddress";
+
+    // NOTES: validation group of the members the service assigns, checked on create together with Default. An update
+    // never writes them, a PUT body may leave them out.
+    public interface Assigned {
+    }
+
+    // NOTES: IDENTITY disables JDBC insert batching, ids come from the id_generator hi/lo table in blocks
+    // of allocationSize (pooled-lo optimizer, see application.yml), so inserts can be batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "accounts_id")
+    @TableGenerator(name = "accounts_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "accounts", allocationSize = 50)
     private Long id;
 
+    // NOTES: stored as binary(16) on MySQL (native uuid on H2), rendered as the canonical string in JSON.
     @NaturalId
-    @NotNull
-    @Size(min = 6, max = 255, message = "Account reference ID must be between 6 and 255 characters")
-    private String accountRefId;
+    @NotNull(groups = Assigned.class)
+    @Column(name = "account_ref_id", nullable = false, updatable = false)
+    private UUID accountRefId;
 
     @NotNull
     @Size(min = 2, max = 200, message = "First Name must be between 2 and 200 characters")
@@ -49,10 +80,16 @@ public class Accounts {
     @NotNull
     @Email(message = "Invalid e-mail address.")
     @Size(min = 3, max = 200, message = "Email address must be between 3 and 200 characters")
-    @Column(columnDefinition = "varchar(200) default ''", nullable = false, unique = true)
+    @Column(columnDefinition = "varchar(200) default ''", nullable = false)
     private String emailAddress;
 
-    @OneToMany(cascade = CascadeType.ALL)
+    // NOTES: addresses are validated with the account, a missing street or city is a 400 instead of a NOT NULL
+    // violation at insert
+    @Valid
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "accounts-addresses")
     @ToString.Exclude
     private Set<Address> addresses;
 
@@ -64,6 +101,11 @@ public class Accounts {
     @Column(name="updated_dt")
     private Instant updateDateTime;
 
+    // NOTES: optimistic lock, also the account's ETag (AccountsETag). Null until the first persist.
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // NOTES: HibernateProxy, https://jpa-buddy.com/blog/hopefully-the-final-article-about-equals-and-hashcode-for-jpa-entities-with-db-generated-ids/
     @Override
     public final boolean equals(Object o) {
@@ -73,11 +115,13 @@ public class Accounts {
         Class<?> thisEffectiveClass = this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass() : this.getClass();
         if (thisEffectiveClass != oEffectiveClass) return false;
         Accounts accounts = (Accounts) o;
-        return getId() != null && Objects.equals(getId(), accounts.getId());
+        return getAccountRefId() != null && Objects.equals(getAccountRefId(), accounts.getAccountRefId());
     }
 
+    // NOTES: identity is the @NaturalId, it is assigned before the first persist (AccountsController.create) and never
+    // changes afterwards, so the hash is stable across transient/managed/detached states and spreads across buckets.
     @Override
     public final int hashCode() {
-        return this instanceof HibernateProxy ? ((HibernateProxy) this).getHibernateLazyInitializer().getPersistentClass().hashCode() : getClass().hashCode();
+        return Objects.hashCode(getAccountRefId());
     }
 }
@@ -0,0 +1,117 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// NOTES: structured access log on the accounts.access logger, one event per sampled request with method, endpoint (the
+// route pattern), id, status, outcome, rows and latencyMicros as SLF4J key/value pairs. A share of
+// accounts.access-log.sample-rate of the requests is logged, every server error is. The key/values are only rendered
+// by the ASYNC_ACCESS appender's worker thread (logback-spring.xml), which drops events rather than block a request
+// when its queue is full. Controllers report the number of accounts (or addresses) they returned with rows().
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Slf4j(topic = "accounts.access")
+public class AccountsAccessLog extends OncePerRequestFilter {
+    static final String ROWS = AccountsAccessLog.class.getName() + ".rows";
+
+    private final double sampleRate;
+
+    public AccountsAccessLog(@Value("${accounts.access-log.sample-rate:1.0}") final double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    static void rows(final long rows) {
+        HttpServletRequest request = currentRequest();
+        if (request != null) request.setAttribute(ROWS, rows);
+    }
+
+    // for rows counted after the handler returned (StreamingResponseBody), the request attributes are gone by then
+    static LongConsumer deferredRows() {
+        HttpServletRequest request = currentRequest();
+        return rows -> {
+            if (request != null) request.setAttribute(ROWS, rows);
+        };
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain chain) throws ServletException, IOException {
+        if (!log.isInfoEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(final AsyncEvent event) {
+                        log(request, response.getStatus(), started);
+                    }
+
+                    @Override
+                    public void onTimeout(final AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(final AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(final AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), started);
+            }
+        }
+    }
+
+    private void log(final HttpServletRequest request, final int status, final long started) {
+        Outcome outcome = Outcome.forStatus(status);
+        if (outcome != Outcome.SERVER_ERROR && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        LoggingEventBuilder event = log.atInfo()
+                .addKeyValue("method", request.getMethod())
+                .addKeyValue("endpoint", pattern != null ? pattern : request.getRequestURI());
+        if (request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE) instanceof Map<?, ?> variables
+                && variables.get("id") != null) {
+            event.addKeyValue("id", variables.get("id"));
+        }
+        event.addKeyValue("status", status).addKeyValue("outcome", outcome);
+        Object rows = request.getAttribute(ROWS);
+        if (rows != null) event.addKeyValue("rows", rows);
+        event.addKeyValue("latencyMicros", latencyMicros).log();
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest() : null;
+    }
+}
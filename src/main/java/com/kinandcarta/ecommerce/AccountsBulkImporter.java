@@ -0,0 +1,139 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@Profile("!reactive")
+@Slf4j
+public class AccountsBulkImporter {
+    private final AccountsHandler accountsHandler;
+    private final AccountRefIdGenerator accountRefIdGenerator;
+    private final AccountsOutbox outbox;
+    private final EmailAddressFilter emailFilter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AccountsBulkImporter(AccountsHandler accountsHandler,
+                                AccountRefIdGenerator accountRefIdGenerator,
+                                AccountsOutbox outbox,
+                                EmailAddressFilter emailFilter,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${accounts.bulk.batch-size:500}") int batchSize) {
+        this.accountsHandler = accountsHandler;
+        this.accountRefIdGenerator = accountRefIdGenerator;
+        this.outbox = outbox;
+        this.emailFilter = emailFilter;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    // NOTES: accepts a JSON array or NDJSON, records are read one at a time from the stream, validated, and
+    // committed in chunks of batchSize. Each chunk is one transaction, flushed as JDBC batches and cleared.
+    public BulkImportReport importAccounts(final InputStream json) {
+        List<BulkImportReport.Result> results = new ArrayList<>();
+        List<Pending> chunk = new ArrayList<>(batchSize);
+        int index = 0;
+        try (MappingIterator<Accounts> accounts = objectMapper.readerFor(Accounts.class).readValues(json)) {
+            while (accounts.hasNextValue()) {
+                Accounts account = toNewAccount(accounts.nextValue());
+                Set<ConstraintViolation<Accounts>> violations = accountsHandler.validate(account);
+                if (violations.isEmpty()) {
+                    chunk.add(new Pending(index, account));
+                } else {
+                    results.add(BulkImportReport.Result.invalid(index, ValidationErrorResponse.of(violations).violations()));
+                }
+                index++;
+                if (chunk.size() == batchSize) {
+                    results.addAll(persist(chunk));
+                    chunk.clear();
+                }
+            }
+        } catch (final IOException e) {
+            // NOTES: a malformed document leaves the stream unrecoverable, report it and keep what was committed
+            log.error("::METHOD, importAccounts, unreadable record at index {}", index, e);
+            results.add(BulkImportReport.Result.failed(index, "Unreadable record, import stopped: " + e.getMessage()));
+        }
+        // the last, partial chunk, only when the stream ended or became unreadable. Any other failure propagates
+        // without committing what was read after the previous chunk.
+        results.addAll(persist(chunk));
+
+        results.sort((first, second) -> Integer.compare(first.index(), second.index()));
+        int created = (int) results.stream().filter(result -> result.status() == BulkImportReport.Status.CREATED).count();
+        return new BulkImportReport(results.size(), created, results.size() - created, results);
+    }
+
+    private List<BulkImportReport.Result> persist(final List<Pending> chunk) {
+        if (chunk.isEmpty()) return List.of();
+        try {
+            return transactionTemplate.execute(status -> insert(chunk));
+        } catch (final RuntimeException e) {
+            log.error("::METHOD, persist, chunk of {} failed, retrying records one by one. {}", chunk.size(), e.getMessage());
+            return persistOneByOne(chunk);
+        }
+    }
+
+    // A failed chunk is rolled back as a whole, replay it record by record so only the offending rows are rejected.
+    private List<BulkImportReport.Result> persistOneByOne(final List<Pending> chunk) {
+        List<BulkImportReport.Result> results = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            resetIds(pending.account());
+            try {
+                results.addAll(transactionTemplate.execute(status -> insert(List.of(pending))));
+            } catch (final RuntimeException e) {
+                log.error("::METHOD, persistOneByOne, record {} failed. {}", pending.index(), e.getMessage());
+                results.add(BulkImportReport.Result.failed(pending.index(), "Account could not be stored, duplicate or constraint violation."));
+            }
+        }
+        return results;
+    }
+
+    private List<BulkImportReport.Result> insert(final List<Pending> chunk) {
+        for (Pending pending : chunk) {
+            entityManager.persist(pending.account());
+            outbox.record(AccountsChangeEvent.Type.CREATED, pending.account());
+            emailFilter.putAfterCommit(pending.account().getEmailAddress());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return chunk.stream().map(pending -> BulkImportReport.Result.created(pending.index(), pending.account())).toList();
+    }
+
+    private Accounts toNewAccount(final Accounts account) {
+        resetIds(account);
+        account.setAccountRefId(accountRefIdGenerator.next());
+        return account;
+    }
+
+    private void resetIds(final Accounts account) {
+        account.setId(null);
+        account.setVersion(null);
+        if (account.getAddresses() != null) {
+            account.getAddresses().forEach(address -> address.setId(null));
+        }
+    }
+
+    private record Pending(int index, Accounts account) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.Optional;
+
+public interface AccountsByIdRepository {
+    Optional<Accounts> findById(final Long id);
+
+    Optional<Accounts> findByIdBypassingCache(final Long id);
+}
@@ -0,0 +1,49 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+
+public class AccountsByIdRepositoryImpl implements AccountsByIdRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: takes the place of JpaRepository.findById. Cold, the account and its addresses are one fetch-joined
+    // select. A second-level cache hit skips the fetch graph and leaves the addresses uninitialised, they are then
+    // initialised from the accounts-addresses region (one @BatchSize query if that entry is gone).
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Accounts> findById(final Long id) {
+        return find(id, Map.of("jakarta.persistence.fetchgraph", addresses()));
+    }
+
+    // NOTES: the re-read after a bulk UPDATE (updateFields, patchFields). Those only evict the accounts region when
+    // the transaction completes, until then the region still holds the account as it was before the UPDATE. The
+    // account is read from the database and not put into the region, the eviction at commit would drop it anyway.
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Accounts> findByIdBypassingCache(final Long id) {
+        return find(id, Map.of("jakarta.persistence.fetchgraph", addresses(),
+                "jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS,
+                "jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS));
+    }
+
+    private Optional<Accounts> find(final Long id, final Map<String, Object> hints) {
+        Optional<Accounts> account = Optional.ofNullable(entityManager.find(Accounts.class, id, hints));
+        account.ifPresent(found -> Hibernate.initialize(found.getAddresses()));
+        return account;
+    }
+
+    private EntityGraph<Accounts> addresses() {
+        EntityGraph<Accounts> graph = entityManager.createEntityGraph(Accounts.class);
+        graph.addAttributeNodes("addresses");
+        return graph;
+    }
+}
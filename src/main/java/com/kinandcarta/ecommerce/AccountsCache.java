@@ -0,0 +1,124 @@
+package com.kinandcarta.ecommerce;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+// NOTES: read-through cache of fully loaded (addresses included) detached accounts, indexed by id and accountRefId.
+// Both indexes hold the same instance, evicting one side evicts the other. Loads are single flight per key,
+// a stampede on a cold key produces one query. Callers must treat cached accounts as read-only.
+@Component
+@Profile("!reactive")
+@Slf4j
+public class AccountsCache implements MeterBinder {
+    private final Cache<Long, Accounts> accountsById;
+    private final Cache<UUID, Accounts> accountsByRef;
+
+    public AccountsCache(@Value("${accounts.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${accounts.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.accountsByRef = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((UUID ref, Accounts account, RemovalCause cause) -> {
+                    if (account != null) accountsByIdRemove(account.getId());
+                })
+                .recordStats()
+                .build();
+        this.accountsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((Long id, Accounts account, RemovalCause cause) -> {
+                    if (account != null && account.getAccountRefId() != null) accountsByRef.invalidate(account.getAccountRefId());
+                })
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Accounts> findById(final Long id, final Function<Long, Optional<Accounts>> loader) {
+        return Optional.ofNullable(accountsById.get(id, key -> loader.apply(key)
+                .map(account -> {
+                    if (account.getAccountRefId() != null) accountsByRef.put(account.getAccountRefId(), account);
+                    return account;
+                })
+                .orElse(null)));
+    }
+
+    public Optional<Accounts> findByAccountRefId(final UUID accountRefId, final Function<UUID, Optional<Accounts>> loader) {
+        return Optional.ofNullable(accountsByRef.get(accountRefId, key -> loader.apply(key)
+                .map(account -> {
+                    if (account.getId() != null) accountsById.put(account.getId(), account);
+                    return account;
+                })
+                .orElse(null)));
+    }
+
+    // NOTES: batch reads only take what is already cached, misses are loaded by the caller in one query and not
+    // written back, a bulk put could race an eviction and re-cache a state that has just been replaced.
+    public Map<Long, Accounts> findAllPresentById(final Collection<Long> ids) {
+        return accountsById.getAllPresent(ids);
+    }
+
+    public Map<UUID, Accounts> findAllPresentByAccountRefId(final Collection<UUID> accountRefIds) {
+        return accountsByRef.getAllPresent(accountRefIds);
+    }
+
+    // Evicts now and again once the surrounding transaction commits, so a concurrent reader cannot re-cache
+    // the pre-commit state. accountRefId is invalidated by key, not through the id entry: a reference load that
+    // has not put into accountsById yet would otherwise survive the eviction.
+    public void evict(final Long id, final UUID accountRefId) {
+        evictNow(id, accountRefId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id, accountRefId);
+                }
+            });
+        }
+    }
+
+    // cache.gets (hit/miss), cache.size and cache.evictions for cache=accounts.byId and accounts.byRef
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, accountsById, "accounts.byId");
+        CaffeineCacheMetrics.monitor(registry, accountsByRef, "accounts.byRef");
+    }
+
+    public CacheStats byIdStats() {
+        return accountsById.stats();
+    }
+
+    public CacheStats byRefStats() {
+        return accountsByRef.stats();
+    }
+
+    private void evictNow(final Long id, final UUID accountRefId) {
+        Accounts removed = accountsByIdRemove(id);
+        if (removed != null && removed.getAccountRefId() != null) {
+            accountsByRef.invalidate(removed.getAccountRefId());
+        }
+        if (accountRefId != null) accountsByRef.invalidate(accountRefId);
+        log.debug("evict: id -> {}, accountRefId -> {}", id, accountRefId);
+    }
+
+    private Accounts accountsByIdRemove(final Long id) {
+        return id == null ? null : accountsById.asMap().remove(id);
+    }
+}
@@ -0,0 +1,24 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// NOTES: one account mutation as published to an AccountsChangeSink. account is the account JSON as it was
+// committed (absent for DELETED). Events of one account are ordered by version, consumers drop an event whose version
+// is not newer than the one they hold, so a redelivered event is harmless. A DELETED event carries the version after
+// the account's last one (versionOf). sequence is the event's position in the change feed, assigned by AccountsOutboxRelay.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AccountsChangeEvent(Long sequence, Type type, Long accountId, UUID accountRefId, Long version,
+                                  Instant occurredAt, @JsonRawValue String account) {
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    // the delete is one more change after the account's last write, without the bump the version rule drops it
+    static Long versionOf(final Type type, final Long accountVersion) {
+        return type == Type.DELETED && accountVersion != null ? accountVersion + 1 : accountVersion;
+    }
+}
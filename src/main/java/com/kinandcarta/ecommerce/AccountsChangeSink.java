@@ -0,0 +1,11 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.List;
+
+// NOTES: where AccountsOutboxRelay publishes change events, in feed sequence order, one batch per call inside the
+// relay's transaction. A failure leaves the batch unrelayed for the next run (at-least-once). LocalAccountsChangeSink
+// serves the feed from the outbox table on GET /accounts/changes, a broker-backed sink replaces it with
+// accounts.changes.sink.
+public interface AccountsChangeSink {
+    void publish(final List<AccountsChangeEvent> events);
+}
@@ -0,0 +1,97 @@
+package com.kinandcarta.ecommerce;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// NOTES: long-poll change feed for consumers that keep their own copy of accounts. GET /accounts/changes?since=<next>
+// answers at once when there are events after `since`, otherwise it holds the request (no thread) until the next
+// publish or `wait` (seconds) elapses, then answers with an empty page. `next` is the `since` of the following call.
+// 410 means the events after `since` are gone (older than accounts.changes.retention) or were never handed out,
+// re-read the accounts and continue from the 410's `next`, the feed's current end. Every instance serves the same feed.
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(value = "accounts.changes.sink", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class AccountsChangesController {
+    final
+    LocalAccountsChangeSink changes;
+    final
+    Duration maximumWait;
+    final
+    Executor taskExecutor;
+
+    public AccountsChangesController(LocalAccountsChangeSink changes,
+                                     @Value("${accounts.changes.long-poll.maximum-wait:30s}") Duration maximumWait,
+                                     @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor taskExecutor) {
+        this.changes = changes;
+        this.maximumWait = maximumWait;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @GetMapping(value = "/accounts/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<LocalAccountsChangeSink.AccountsChanges>> changes(
+            @RequestParam(value = "since", defaultValue = "0") final long since,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            @RequestParam(value = "wait", required = false) final Integer waitSeconds) {
+        log.debug("changes since - {}, limit - {}, wait - {}", since, limit, waitSeconds);
+        Duration wait = waitSeconds == null ? maximumWait : Duration.ofSeconds(Math.max(0, waitSeconds));
+        Duration timeout = wait.compareTo(maximumWait) > 0 ? maximumWait : wait;
+        DeferredResult<ResponseEntity<LocalAccountsChangeSink.AccountsChanges>> result =
+                new DeferredResult<>(timeout.toMillis(), () -> read(since, limit));
+        if (limit != null && limit < 1) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+
+        CompletableFuture<Void> published = changes.nextPublish();
+        ResponseEntity<LocalAccountsChangeSink.AccountsChanges> now = read(since, limit);
+        if (now.getStatusCode() != HttpStatus.OK || !now.getBody().events().isEmpty() || timeout.isZero()) {
+            result.setResult(now);
+        } else {
+            awaitChanges(result, published, since, limit);
+        }
+        return result;
+    }
+
+    // a wake up can come without events after `since` (another reader's position), the request then waits again. The
+    // publish completes on the scheduler thread, the re-read of every held request runs on the task executor instead.
+    private void awaitChanges(final DeferredResult<ResponseEntity<LocalAccountsChangeSink.AccountsChanges>> result,
+                              final CompletableFuture<Void> published, final long since, final Integer limit) {
+        published.thenRunAsync(() -> {
+            if (result.isSetOrExpired()) return;
+            CompletableFuture<Void> next = changes.nextPublish();
+            ResponseEntity<LocalAccountsChangeSink.AccountsChanges> now = read(since, limit);
+            if (now.getStatusCode() != HttpStatus.OK || !now.getBody().events().isEmpty()) {
+                result.setResult(now);
+            } else {
+                awaitChanges(result, next, since, limit);
+            }
+        }, taskExecutor);
+    }
+
+    private ResponseEntity<LocalAccountsChangeSink.AccountsChanges> read(final long since, final Integer limit) {
+        try {
+            return ResponseEntity.ok(changes.changesSince(since, CursorPage.limitToPageSize(limit)));
+        } catch (final LocalAccountsChangeSink.ChangesGoneException e) {
+            // an expected answer for a consumer that fell behind, not a service error
+            log.info("::METHOD, changes, {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).body(new LocalAccountsChangeSink.AccountsChanges(List.of(), e.last()));
+        }
+    }
+}
@@ -1,64 +1,112 @@
 package com.kinandcarta.ecommerce;
 
-import jakarta.persistence.EntityNotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 @RestController
+@Profile("!reactive")
 @Slf4j
-public class AccountsController implements CrudUseCase<Accounts>, AccountsUseCase{
-    private static final int LENGTH_LIMIT_FOR_STRING = 255;
+public class AccountsController implements CrudUseCase<Accounts, AccountsResponse>, AccountsUseCase{
+    // NOTES: request latency per endpoint is the http.server.requests timer (uri/method/status tags), this counts
+    // misses and failures by operation and exception. Exceptions are mapped to a status by AccountsControllerAdvice.
+    static final String FAILURES = "accounts.controller.failures";
+    static final String NOT_FOUND = "NotFound";
     final
     AccountsHandler accountsHandler;
+    final
+    AccountsBulkImporter accountsBulkImporter;
+    final
+    AccountRefIdGenerator accountRefIdGenerator;
+    final
+    ObjectMapper objectMapper;
+    final
+    MeterRegistry meterRegistry;
+    final
+    ConcurrentMap<String, Counter> misses = new ConcurrentHashMap<>();
 
-    public AccountsController(AccountsHandler accountsHandler) {
+    public AccountsController(AccountsHandler accountsHandler, AccountsBulkImporter accountsBulkImporter,
+                              AccountRefIdGenerator accountRefIdGenerator, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
         this.accountsHandler = accountsHandler;
+        this.accountsBulkImporter = accountsBulkImporter;
+        this.accountRefIdGenerator = accountRefIdGenerator;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     @PostMapping(value = "/accounts", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Accounts> create(@RequestBody final Accounts model) {
-        try {
-            if (model == null) return ResponseEntity.badRequest().build();
+    public ResponseEntity<AccountsResponse> create(@RequestBody final Accounts model) {
+        if (model == null) return ResponseEntity.badRequest().build();
 
-            model.setAccountRefId(limitTo255Length(UUID.randomUUID().toString()));
+        model.setAccountRefId(accountRefIdGenerator.next());
 
-            return new ResponseEntity<>(accountsHandler.create(model), HttpStatus.OK);
-        } catch (final Exception e) {
-            if (e instanceof EmailNotValidException) {
-                log.error("::METHOD, create, E-mail invalid Exception.");
-                return ResponseEntity.badRequest().build();
-            }
-            log.error("::METHOD, create, exception occured.", e);
-            return ResponseEntity.notFound().build();
-        }
+        AccountsResponse created = AccountsResponse.of(accountsHandler.create(model));
+        AccountsAccessLog.rows(1);
+        return new ResponseEntity<>(created, HttpStatus.OK);
 
         // NOTES: return (current_status: success|failure, data: 0, 1 or Many
     }
 
+    @PostMapping(value = "/accounts/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkImportReport> bulkCreate(final InputStream body) {
+        log.debug("bulkCreate...");
+        BulkImportReport report = accountsBulkImporter.importAccounts(body);
+        log.debug("bulkCreate, received - {}, created - {}", report.received(), report.created());
+        AccountsAccessLog.rows(report.created());
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    // NOTES: If-Match carries the ETag of a previous read or update, a stale one is a 412. Without If-Match a
+    // concurrent update that wins the race is a 409, the client re-reads and retries (AccountsControllerAdvice).
     @Override
     @PutMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Accounts> update(@PathVariable("id") @NotNull final Long id, @RequestBody final Accounts model) {
+    public ResponseEntity<AccountsResponse> update(@PathVariable("id") @NotNull final Long id, @RequestBody final Accounts model,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
         Objects.requireNonNull(id, "ID not provided for, update");
-        log.debug("update  for id - " + id);
-        try {
-            return new ResponseEntity<>(accountsHandler.update(id, model), HttpStatus.OK);
-        } catch (final Exception e) {
-            if (e instanceof EntityNotFoundException) {
-                log.error("EntityNotFoundException: Account not updated for ID -> " + id);
-                return ResponseEntity.badRequest().build();
-            }
-            log.error("::METHOD, update, exception occured.", e);
-            return ResponseEntity.notFound().build();
-        }
+        log.debug("update  for id - {}", id);
+        Accounts updated = accountsHandler.update(id, model, AccountsETag.expectedVersion(ifMatch));
+        AccountsAccessLog.rows(1);
+        return ResponseEntity.ok().eTag(AccountsETag.of(updated.getVersion())).body(AccountsResponse.of(updated));
+    }
+
+    @Override
+    @PatchMapping(value = "/accounts/{id}", consumes = AccountsPatch.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AccountsResponse> patch(@PathVariable("id") @NotNull final Long id, @RequestBody final JsonNode patch,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+        Objects.requireNonNull(id, "ID not provided for, patch");
+        log.debug("patch  for id - {}", id);
+        Accounts patched = accountsHandler.patch(id, AccountsPatch.of(patch, objectMapper), AccountsETag.expectedVersion(ifMatch));
+        AccountsAccessLog.rows(1);
+        return ResponseEntity.ok().eTag(AccountsETag.of(patched.getVersion())).body(AccountsResponse.of(patched));
     }
 
     @Override
@@ -66,64 +114,123 @@ public class AccountsController implements CrudUseCase<Accounts>, AccountsUseCas
     @DeleteMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public void delete(@PathVariable("id") @NotNull final Long id) {
         Objects.requireNonNull(id, "ID not provided for, delete");
-        log.debug("delete  for id - " + id);
-        try {
-            accountsHandler.delete(id);
-        } catch (final Exception e) {
-            log.error("::METHOD, delete, exception occurred.", e);
-        }
+        log.debug("delete  for id - {}", id);
+        accountsHandler.delete(id);
     }
 
     @Override
     @GetMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Accounts> findById(@PathVariable("id") @NotNull final Long id) {
+    public ResponseEntity<AccountsResponse> findById(@PathVariable("id") @NotNull final Long id, final WebRequest request) {
         Objects.requireNonNull(id, "ID not provided for, findById");
-        log.debug("findById  for id - " + id);
-        try {
-            return new ResponseEntity<>(accountsHandler.findById(id), HttpStatus.OK);
-        } catch (final Exception e) {
-            log.error("::METHOD, findById, exception occurred.", e);
-            return ResponseEntity.notFound().build();
-        }
+        log.debug("findById  for id - {}", id);
+        if (notModified(request, () -> accountsHandler.findVersion(id))) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        Optional<Accounts> account = accountsHandler.findById(id);
+        if (account.isEmpty()) return notFound("findById");
+        AccountsAccessLog.rows(1);
+        return versioned(AccountsVersion.of(account.get()), AccountsResponse.of(account.get()));
     }
 
     @Override
     @GetMapping(value = "/accounts/{id}/reference", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Accounts> findByAccountIdRef(@PathVariable("id") @NotNull final String id) {
+    public ResponseEntity<AccountsResponse> findByAccountIdRef(@PathVariable("id") @NotNull final UUID id, final WebRequest request) {
         Objects.requireNonNull(id, "ID not provided for, findByAccountIdRef");
-        log.debug("findByAccountIdRef  for id - " + id);
-        try {
-            return new ResponseEntity<>(accountsHandler.findByAccountIdRef(id), HttpStatus.OK);
-        } catch (final Exception e) {
-            log.error("::METHOD, findByAccountIdRef, exception occurred.", e);
-            return ResponseEntity.notFound().build();
-        }
+        log.debug("findByAccountIdRef  for id - {}", id);
+        if (notModified(request, () -> accountsHandler.findVersionByAccountIdRef(id))) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        Optional<Accounts> account = accountsHandler.findByAccountIdRef(id);
+        if (account.isEmpty()) return notFound("findByAccountIdRef");
+        AccountsAccessLog.rows(1);
+        return versioned(AccountsVersion.of(account.get()), AccountsResponse.of(account.get()));
+    }
+
+
+    @Override
+    @GetMapping(value = "/accounts/by-email", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AccountsResponse> findByEmailAddress(@RequestParam("email") final String email) {
+        log.debug("findByEmailAddress...");
+        Optional<Accounts> account = accountsHandler.findByEmailAddress(email);
+        if (account.isEmpty()) return notFound("findByEmailAddress");
+        AccountsAccessLog.rows(1);
+        return versioned(AccountsVersion.of(account.get()), AccountsResponse.of(account.get()));
     }
 
 
     @GetMapping(value = "/accounts", produces = MediaType.APPLICATION_JSON_VALUE)
     @Override
-    public ResponseEntity<Set<Accounts>> findAll() {
-        log.debug("findAll...");
-        try {
-        return new ResponseEntity<>(accountsHandler.findAll(), HttpStatus.OK);
-        } catch (final Exception e) {
-            log.error("::METHOD, findAll, exception occurred.", e);
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<CursorPage<AccountsResponse>> findAll(@RequestParam(value = "after", required = false) final Long after,
+                                                                @RequestParam(value = "limit", required = false) final Integer limit) {
+        log.debug("findAll after - {}, limit - {}", after, limit);
+        if (limit != null && limit < 1) return ResponseEntity.badRequest().build();
+        CursorPage<Accounts> page = accountsHandler.findAll(after, CursorPage.limitToPageSize(limit));
+        AccountsAccessLog.rows(page.items().size());
+        return new ResponseEntity<>(page.map(AccountsResponse::of), HttpStatus.OK);
+    }
+
+    // NOTES: prefix search (firstName, lastName, emailAddress, city, postalCode) and exact state, bound from the query
+    // string. At least one criterion is required, an unfiltered listing is GET /accounts.
+    @Override
+    @GetMapping(value = "/accounts/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<CursorPage<AccountsResponse>> search(final AccountsSearch search,
+                                                               @RequestParam(value = "after", required = false) final Long after,
+                                                               @RequestParam(value = "limit", required = false) final Integer limit) {
+        log.debug("search after - {}, limit - {}", after, limit);
+        if (search == null || search.isEmpty() || (limit != null && limit < 1)) return ResponseEntity.badRequest().build();
+        CursorPage<Accounts> page = accountsHandler.search(search, after, CursorPage.limitToPageSize(limit));
+        AccountsAccessLog.rows(page.items().size());
+        return new ResponseEntity<>(page.map(AccountsResponse::of), HttpStatus.OK);
+    }
+
+    @Override
+    @GetMapping(value = "/accounts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.debug("streamAll...");
+        LongConsumer rows = AccountsAccessLog.deferredRows();
+        StreamingResponseBody body = outputStream -> {
+            long[] written = new long[1];
+            try (SequenceWriter writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                accountsHandler.streamAll(account -> {
+                    try {
+                        writer.write(AccountsResponse.of(account));
+                        written[0]++;
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                rows.accept(written[0]);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @Override
     @GetMapping(value = "/accounts/{id}/addresses", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Set<Address>> findAllAddressesForAccount(@PathVariable("id") @NotNull final Long id) {
+    public ResponseEntity<List<AddressResponse>> findAllAddressesForAccount(@PathVariable("id") @NotNull final Long id,
+                                                                            final WebRequest request) {
         Objects.requireNonNull(id, "ID not provided for, findAllAddressesForAccount");
-        log.debug("findAllAddressesForAccount  for id - " + id);
-        try {
-            return new ResponseEntity<>(accountsHandler.findAllAddressesForAccount(id), HttpStatus.OK);
-        } catch (final Exception e) {
-            log.error("::METHOD, findAllAddressesForAccount, exception occurred.", e);
-            return ResponseEntity.notFound().build();
-        }
+        log.debug("findAllAddressesForAccount  for id - {}", id);
+        if (notModified(request, () -> accountsHandler.findVersion(id))) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        Optional<Accounts> account = accountsHandler.findById(id);
+        if (account.isEmpty()) return notFound("findAllAddressesForAccount");
+        // address changes bump the account version, so the account's validators also cover its addresses
+        List<AddressResponse> addresses = AddressResponse.of(accountsHandler.findAllAddressesForAccount(id).orElse(List.of()));
+        AccountsAccessLog.rows(addresses.size());
+        return versioned(AccountsVersion.of(account.get()), addresses);
+    }
+
+    // NOTES: resolves up to AccountsLookup.MAX_SIZE distinct ids and refs in one call, for callers that would
+    // otherwise issue one GET per account. Not found identifiers come back in missingIds/missingRefs.
+    @Override
+    @PostMapping(value = "/accounts/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AccountsLookup.Response> lookup(@RequestBody final AccountsLookup.Request request) {
+        int size = request == null ? 0 : request.size();
+        log.debug("lookup for - {} identifiers", size);
+        if (size < 1 || size > AccountsLookup.MAX_SIZE) return ResponseEntity.badRequest().build();
+        AccountsLookup.Response found = AccountsLookup.Response.of(accountsHandler.lookup(request.distinctIds(), request.distinctRefs()));
+        AccountsAccessLog.rows(found.ids().size() + found.refs().size());
+        return ResponseEntity.ok(found);
     }
 
     // Helper methods
@@ -140,7 +247,6 @@ public class AccountsController implements CrudUseCase<Accounts>, AccountsUseCas
 
         return Accounts.builder()
                 .id(account.getId())
-                .accountRefId(limitTo255Length(UUID.randomUUID().toString()))
                 .accountRefId(account.getAccountRefId())
                 .firstName(account.getFirstName())
                 .lastName(account.getLastName())
@@ -148,12 +254,28 @@ public class AccountsController implements CrudUseCase<Accounts>, AccountsUseCas
                 .addresses(account.getAddresses()).build();
     }
 
-    private String limitTo255Length(final String data) {
-        Objects.requireNonNull(data, "limitTo255Length, input null or missing.");
-        if (data.length() > LENGTH_LIMIT_FOR_STRING) {
-            return data.substring(0,255);
+    // NOTES: conditional reads. With If-None-Match or If-Modified-Since the version and updated_dt are read first
+    // (AccountsVersion, one key lookup), a match is a 304 without loading the account, its addresses or serializing
+    // them. Unconditional reads go straight to the (cached) account, its validators are sent along with it.
+    private boolean notModified(final WebRequest request, final Supplier<Optional<AccountsVersion>> current) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null && request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) == null) {
+            return false;
         }
+        return current.get().map(version -> request.checkNotModified(version.eTag(), version.lastModified())).orElse(false);
+    }
+
+    private <T> ResponseEntity<T> versioned(final AccountsVersion version, final T body) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (version.version() != null) ok.eTag(version.eTag());
+        if (version.updateDateTime() != null) ok.lastModified(version.updateDateTime());
+        return ok.body(body);
+    }
 
-        return data;
+    // NOTES: a miss is an empty Optional from the handler, no exception is created for it. It is still counted with
+    // the failures, under exception=NotFound (exceptions are counted by AccountsControllerAdvice), the counter per
+    // operation is kept so a miss does not build meter tags either.
+    private <T> ResponseEntity<T> notFound(final String operation) {
+        misses.computeIfAbsent(operation, key -> meterRegistry.counter(FAILURES, "operation", key, "exception", NOT_FOUND)).increment();
+        return ResponseEntity.notFound().build();
     }
 }
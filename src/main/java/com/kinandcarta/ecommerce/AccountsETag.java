@@ -0,0 +1,26 @@
+package com.kinandcarta.ecommerce;
+
+// NOTES: strong entity tag of an account, its @Version in quotes. If-Match is compared strongly (RFC 9110),
+// a weak or malformed tag can never match, it is mapped to a version no row has.
+final class AccountsETag {
+    static final long NO_MATCH = -1L;
+
+    private AccountsETag() {
+    }
+
+    static String of(final Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // null when there is no precondition (no header or *)
+    static Long expectedVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') return NO_MATCH;
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (final NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+}
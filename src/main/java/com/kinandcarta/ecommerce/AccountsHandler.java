@@ -1,98 +1,289 @@
 package com.kinandcarta.ecommerce;
 
-import jakarta.persistence.EntityNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validation;
 import jakarta.validation.Validator;
-import jakarta.validation.ValidatorFactory;
+import jakarta.validation.groups.Default;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+// NOTES: every public method is timed (accounts.handler, class/method tags), read next to
+// spring.data.repository.invocations it separates DB time from validation and mapping time.
 @Service
+@Profile("!reactive")
 @Slf4j
+@Timed(value = "accounts.handler", histogram = true)
 public class AccountsHandler implements ServiceHandler {
     private final AccountsRepository repository;
+    private final Validator validator;
+    private final AccountsCache cache;
+    private final AccountsOutbox outbox;
+    private final EmailAddressFilter emailFilter;
 
-    public AccountsHandler(AccountsRepository repository) {
+    public AccountsHandler(AccountsRepository repository, Validator validator, AccountsCache cache, AccountsOutbox outbox,
+                           EmailAddressFilter emailFilter) {
         this.repository = repository;
+        this.validator = validator;
+        this.cache = cache;
+        this.outbox = outbox;
+        this.emailFilter = emailFilter;
     }
 
     @Override
     @Transactional
     public Accounts create(final Accounts model) {
-        log.debug("create: model ->" + model.toString());
-        if (validate(model)) {
-            throw new EmailNotValidException("Invalid e-mail address.");
-        }
+        log.debug("create: model ->{}", model);
+        assertValid(model);
+        assertEmailAvailable(model.getEmailAddress());
+        model.setVersion(null);
 
-        return repository.save(model);
+        Accounts created = repository.save(model);
+        outbox.record(AccountsChangeEvent.Type.CREATED, created);
+        emailFilter.putAfterCommit(model.getEmailAddress());
+        return created;
     }
 
     @Override
     @Transactional
     public Accounts update(final Long id, final Accounts model) {
-        log.debug("update: id -> " + id + ", model -> " + model.toString());
-
-        Optional<Accounts> accountsFound = repository.findById(id);
-        if (accountsFound.isPresent()) {
-            accountsFound.get().setFirstName(model.getFirstName());
-            accountsFound.get().setLastName(model.getLastName());
-            accountsFound.get().setEmailAddress(model.getEmailAddress());
-
-            if (accountsFound.get().getAddresses().isEmpty()) {
-                accountsFound.get().setAddresses(new HashSet<>());
-            } else {
-                accountsFound.get().setAddresses(model.getAddresses());
-            }
-            repository.save(accountsFound.get());
+        return update(id, model, null);
+    }
+
+    // NOTES: without addresses in the body only the account columns change, one UPDATE and no load. With addresses
+    // the account is loaded once (addresses fetch-joined), the addresses are diffed in place (AddressChanges) and
+    // @DynamicUpdate writes only the changed columns and rows. expectedVersion (If-Match) is checked either way,
+    // a mismatch is an OptimisticLockingFailureException. Returns the persisted account with its new version.
+    @Override
+    @Transactional
+    public Accounts update(final Long id, final Accounts model, final Long expectedVersion) {
+        log.debug("update: id -> {}, model -> {}", id, model);
+        assertValid(validator.validate(model));
+
+        Accounts updated = model.getAddresses() == null
+                ? updateFields(id, model, expectedVersion)
+                : updateWithAddresses(id, model, expectedVersion);
+        outbox.record(AccountsChangeEvent.Type.UPDATED, updated);
+        emailFilter.putAfterCommit(model.getEmailAddress());
+        cache.evict(id, updated.getAccountRefId());
+        return updated;
+    }
+
+    // NOTES: PATCH (merge patch), the same two paths as update but only the touched members are validated and
+    // written. Without addresses the UPDATE sets just the patched columns, an empty patch writes nothing.
+    @Override
+    @Transactional
+    public Accounts patch(final Long id, final AccountsPatch patch, final Long expectedVersion) {
+        log.debug("patch: id -> {}, fields -> {}", id, patch.fields().keySet());
+        Set<ConstraintViolation<?>> violations = patch.validate(validator);
+        if (!violations.isEmpty()) {
+            throw new AccountsValidationException(violations);
+        }
+
+        Accounts patched;
+        if (patch.addresses() != null) {
+            Accounts account = loadForUpdate(id, expectedVersion);
+            patch.applyTo(account);
+            patched = saveWithAddresses(account, patch.addresses());
+        } else if (patch.fields().isEmpty()) {
+            patched = loadForUpdate(id, expectedVersion);
         } else {
-            throw new EntityNotFoundException("Account not updated for ID -> " + id);
+            patched = checkUpdated(id, repository.patchFields(id, patch.fields(), Instant.now(), expectedVersion), expectedVersion);
         }
+        if (patch.addresses() != null || !patch.fields().isEmpty()) {
+            outbox.record(AccountsChangeEvent.Type.UPDATED, patched);
+        }
+        if (patch.fields().containsKey("emailAddress")) emailFilter.putAfterCommit(patch.fields().get("emailAddress"));
+        cache.evict(id, patched.getAccountRefId());
+        return patched;
+    }
 
-        return model;
+    private Accounts updateFields(final Long id, final Accounts model, final Long expectedVersion) {
+        int updated = repository.updateFields(id, model.getFirstName(), model.getLastName(), model.getEmailAddress(),
+                Instant.now(), expectedVersion);
+        return checkUpdated(id, updated, expectedVersion);
+    }
+
+    private Accounts updateWithAddresses(final Long id, final Accounts model, final Long expectedVersion) {
+        Accounts account = loadForUpdate(id, expectedVersion);
+        account.setFirstName(model.getFirstName());
+        account.setLastName(model.getLastName());
+        account.setEmailAddress(model.getEmailAddress());
+        return saveWithAddresses(account, model.getAddresses());
+    }
+
+    private Accounts checkUpdated(final Long id, final int updated, final Long expectedVersion) {
+        if (updated == 0) {
+            if (!repository.existsById(id)) throw new AccountsNotFoundException("Account not updated for ID -> " + id);
+            throw new OptimisticLockingFailureException("Account " + id + " is not at version " + expectedVersion);
+        }
+        return repository.findByIdBypassingCache(id)
+                .orElseThrow(() -> new AccountsNotFoundException("Account not updated for ID -> " + id));
+    }
+
+    private Accounts loadForUpdate(final Long id, final Long expectedVersion) {
+        Accounts account = repository.findById(id)
+                .orElseThrow(() -> new AccountsNotFoundException("Account not updated for ID -> " + id));
+        if (expectedVersion != null && !expectedVersion.equals(account.getVersion())) {
+            throw new OptimisticLockingFailureException("Account " + id + " is not at version " + expectedVersion);
+        }
+        return account;
+    }
+
+    private Accounts saveWithAddresses(final Accounts account, final Collection<Address> addresses) {
+        AddressChanges changes = AddressChanges.merge(account.getAddresses(), addresses);
+        if (!changes.isEmpty()) {
+            changes.removed().forEach(account.getAddresses()::remove);
+            account.getAddresses().addAll(changes.added());
+            // address rows carry no version, touching the account bumps its version for any address change
+            account.setUpdateDateTime(Instant.now());
+        }
+        return repository.saveAndFlush(account);
     }
 
     @Override
+    @Transactional
     public void delete(final Long id) {
-        log.debug("delete: id -> " + id);
-        repository.deleteById(id);
+        log.debug("delete: id -> {}", id);
+        Optional<Accounts> account = repository.findById(id);
+        account.ifPresent(deleted -> {
+            repository.delete(deleted);
+            outbox.record(AccountsChangeEvent.Type.DELETED, deleted);
+        });
+        cache.evict(id, account.map(Accounts::getAccountRefId).orElse(null));
+    }
+
+    // NOTES: reads answer a miss with an empty Optional, other services probe for accounts that do not exist often
+    // enough that an exception (and its stack trace) per miss shows up in CPU profiles.
+    @Override
+    public Optional<Accounts> findById(final Long id) {
+        log.debug("findById: id -> {}", id);
+        return cache.findById(id, repository::findById);
     }
 
     @Override
-    public Accounts findById(final Long id) {
-        log.debug("findById: id -> " + id);
-        return repository.findById(id).orElseThrow(EntityNotFoundException::new);
+    public CursorPage<Accounts> findAll(final Long after, final int limit) {
+        log.debug("findAll: after -> {}, limit -> {}", after, limit);
+        // NOTES: one extra row tells us whether a next page exists without a count query
+        List<Accounts> accounts = repository.findByIdGreaterThan(after == null ? 0L : after,
+                PageRequest.of(0, limit + 1, Sort.by(Sort.Direction.ASC, "id")));
+        if (accounts.size() <= limit) {
+            return new CursorPage<>(accounts, null);
+        }
+        List<Accounts> page = accounts.subList(0, limit);
+        return new CursorPage<>(page, page.get(limit - 1).getId());
+    }
+
+    // NOTES: keyset page over the search criteria, same cursor rules as findAll
+    @Override
+    public CursorPage<Accounts> search(final AccountsSearch search, final Long after, final int limit) {
+        log.debug("search: after -> {}, limit -> {}", after, limit);
+        List<Accounts> accounts = repository.search(search.toSpecification().and(AccountsSearch.idGreaterThan(after)), limit + 1);
+        if (accounts.size() <= limit) {
+            return new CursorPage<>(accounts, null);
+        }
+        List<Accounts> page = accounts.subList(0, limit);
+        return new CursorPage<>(page, page.get(limit - 1).getId());
     }
 
     @Override
-    public Set<Accounts> findAll() {
-        log.debug("findAll");
-        return new HashSet<>(repository.findAll());
+    @Transactional
+    public void streamAll(final Consumer<Accounts> consumer) {
+        log.debug("streamAll");
+        repository.streamAll(consumer);
     }
 
     @Override
-    public Set<Address> findAllAddressesForAccount(final Long id) {
-        log.debug("findAll Addresses for Account id -> " + id);
-        return findById(id).getAddresses();
-    }
-    public boolean validate(final Accounts account) {
-        Set<ConstraintViolation<Accounts>> violations = new HashSet<>();
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            Validator validator = factory.getValidator();
-            violations = validator.validate(account);
-        } catch (final Exception e) {
-            log.error("Exception [validate], " + e);
+    public Optional<List<Address>> findAllAddressesForAccount(final Long id) {
+        log.debug("findAll Addresses for Account id -> {}", id);
+        return findById(id).map(account -> account.getAddresses() == null ? List.of() : new ArrayList<>(account.getAddresses()));
+    }
+
+    // NOTES: the Spring managed Validator is thread safe and caches constraint metadata per class,
+    // the violations are handed back as-is, no copy is made on the happy path. A new account is checked with its
+    // assigned members (Accounts.Assigned), an update only with the members it writes.
+    public Set<ConstraintViolation<Accounts>> validate(final Accounts account) {
+        return validator.validate(account, Default.class, Accounts.Assigned.class);
+    }
+
+    // NOTES: duplicate precheck on create, only a probable filter hit costs a query, a miss goes straight to the insert
+    // and uc_accounts_emailaddress still rejects a duplicate the filter has not seen (written by another instance).
+    // Updates are not prechecked, the account's own address is always a hit, the constraint answers for them.
+    void assertEmailAvailable(final String emailAddress) {
+        if (!emailFilter.mightContain(emailAddress)) return;
+        if (!repository.existsByEmailAddress(emailAddress.trim())) {
+            emailFilter.falsePositive();
+            return;
+        }
+        throw new DuplicateEmailException("Email address is already registered");
+    }
+
+    void assertValid(final Accounts account) {
+        assertValid(validate(account));
+    }
+
+    private static void assertValid(final Set<ConstraintViolation<Accounts>> violations) {
+        if (!violations.isEmpty()) {
+            throw new AccountsValidationException(violations);
         }
-        return violations.stream().findFirst().isPresent();
     }
 
-    public Accounts findByAccountIdRef(final String id) {
-        log.debug("findByAccountIdRef: id -> " + id);
-        return repository.findAccountsByAccountRefId(id).orElseThrow(EntityNotFoundException::new);
+    @Override
+    public Optional<Accounts> findByAccountIdRef(final UUID id) {
+        log.debug("findByAccountIdRef: id -> {}", id);
+        return cache.findByAccountRefId(id, repository::findByNaturalId);
+    }
+
+    // NOTES: cached accounts are taken as-is, the rest come from one IN query (ids and refs together) plus one batched
+    // address fetch. An account already found by id is not looked up again by its reference.
+    @Override
+    public AccountsLookup lookup(final Collection<Long> ids, final Collection<UUID> refs) {
+        log.debug("lookup: ids -> {}, refs -> {}", ids.size(), refs.size());
+        Map<Long, Accounts> found = new LinkedHashMap<>(cache.findAllPresentById(ids));
+        cache.findAllPresentByAccountRefId(refs).values().forEach(account -> found.put(account.getId(), account));
+        Set<UUID> foundRefs = new HashSet<>();
+        found.values().forEach(account -> foundRefs.add(account.getAccountRefId()));
+
+        List<Long> missingIds = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        List<UUID> missingRefs = refs.stream().filter(ref -> !foundRefs.contains(ref)).toList();
+        repository.findAllByIdsOrAccountRefIds(missingIds, missingRefs).forEach(account -> found.put(account.getId(), account));
+        return AccountsLookup.of(ids, refs, found.values());
+    }
+
+    // NOTES: one unique index lookup on the database, a miss included. The email filter is not asked: it is per instance
+    // and only learns another instance's accounts at its next rebuild, a "no" from it is no answer for a read.
+    @Override
+    public Optional<Accounts> findByEmailAddress(final String emailAddress) {
+        log.debug("findByEmailAddress");
+        return repository.findByEmailAddress(emailAddress.trim());
+    }
+
+    // NOTES: not cached, a conditional read is answered from the database so it sees updates made by other instances
+    @Override
+    public Optional<AccountsVersion> findVersion(final Long id) {
+        log.debug("findVersion: id -> {}", id);
+        return repository.findVersionById(id);
+    }
+
+    @Override
+    public Optional<AccountsVersion> findVersionByAccountIdRef(final UUID id) {
+        log.debug("findVersionByAccountIdRef: id -> {}", id);
+        return repository.findVersionByAccountRefId(id);
     }
 }
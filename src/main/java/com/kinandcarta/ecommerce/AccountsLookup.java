@@ -0,0 +1,67 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// NOTES: result of POST /accounts/lookup. Found accounts are keyed by the identifier they were requested with
+// (an account asked for by id and by reference appears under both), every requested identifier that did not
+// resolve is listed in missingIds/missingRefs, so callers never have to diff the maps against their request.
+public record AccountsLookup(Map<Long, Accounts> ids, Map<UUID, Accounts> refs, List<Long> missingIds, List<UUID> missingRefs) {
+    // one IN query and one @BatchSize(100) address fetch cover a full request
+    static final int MAX_SIZE = 100;
+
+    public record Request(List<Long> ids, List<UUID> refs) {
+        Set<Long> distinctIds() {
+            return ids == null ? Set.of() : ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        Set<UUID> distinctRefs() {
+            return refs == null ? Set.of() : refs.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        int size() {
+            return distinctIds().size() + distinctRefs().size();
+        }
+    }
+
+    // JSON body, an account found by id and by reference is copied once
+    public record Response(Map<Long, AccountsResponse> ids, Map<UUID, AccountsResponse> refs, List<Long> missingIds,
+                           List<UUID> missingRefs) {
+        static Response of(final AccountsLookup lookup) {
+            Map<Accounts, AccountsResponse> copies = new IdentityHashMap<>();
+            Map<Long, AccountsResponse> ids = new LinkedHashMap<>();
+            lookup.ids().forEach((id, account) -> ids.put(id, copies.computeIfAbsent(account, AccountsResponse::of)));
+            Map<UUID, AccountsResponse> refs = new LinkedHashMap<>();
+            lookup.refs().forEach((ref, account) -> refs.put(ref, copies.computeIfAbsent(account, AccountsResponse::of)));
+            return new Response(ids, refs, lookup.missingIds(), lookup.missingRefs());
+        }
+    }
+
+    // requested order is kept, ids and refs are the distinct non-null identifiers of the request
+    static AccountsLookup of(final Collection<Long> ids, final Collection<UUID> refs, final Collection<Accounts> found) {
+        Map<Long, Accounts> byId = new LinkedHashMap<>();
+        Map<UUID, Accounts> byRef = new LinkedHashMap<>();
+        for (Accounts account : found) {
+            byId.put(account.getId(), account);
+            byRef.put(account.getAccountRefId(), account);
+        }
+
+        Map<Long, Accounts> foundIds = new LinkedHashMap<>();
+        List<Long> missingIds = ids.stream().filter(id -> !byId.containsKey(id)).toList();
+        ids.stream().filter(byId::containsKey).forEach(id -> foundIds.put(id, byId.get(id)));
+
+        Map<UUID, Accounts> foundRefs = new LinkedHashMap<>();
+        List<UUID> missingRefs = refs.stream().filter(ref -> !byRef.containsKey(ref)).toList();
+        refs.stream().filter(byRef::containsKey).forEach(ref -> foundRefs.put(ref, byRef.get(ref)));
+
+        return new AccountsLookup(foundIds, foundRefs, missingIds, missingRefs);
+    }
+}
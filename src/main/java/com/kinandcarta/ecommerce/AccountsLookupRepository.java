@@ -0,0 +1,9 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface AccountsLookupRepository {
+    List<Accounts> findAllByIdsOrAccountRefIds(final Collection<Long> ids, final Collection<UUID> accountRefIds);
+}
@@ -0,0 +1,36 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Hibernate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public class AccountsLookupRepositoryImpl implements AccountsLookupRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: one IN query over the primary key and/or the uc_accounts_account_ref_id index, then the addresses of
+    // every account found are initialised together, @BatchSize on Accounts.addresses turns that into one IN query
+    // per 100 accounts. An empty side is left out of the WHERE clause rather than bound as an empty IN list.
+    @Override
+    @Transactional(readOnly = true)
+    public List<Accounts> findAllByIdsOrAccountRefIds(final Collection<Long> ids, final Collection<UUID> accountRefIds) {
+        if (ids.isEmpty() && accountRefIds.isEmpty()) return List.of();
+
+        String where = ids.isEmpty() ? "a.accountRefId in :refs"
+                : accountRefIds.isEmpty() ? "a.id in :ids"
+                : "a.id in :ids or a.accountRefId in :refs";
+        TypedQuery<Accounts> query = entityManager.createQuery("select a from Accounts a where " + where + " order by a.id", Accounts.class);
+        if (!ids.isEmpty()) query.setParameter("ids", ids);
+        if (!accountRefIds.isEmpty()) query.setParameter("refs", accountRefIds);
+
+        List<Accounts> accounts = query.getResultList();
+        accounts.forEach(account -> Hibernate.initialize(account.getAddresses()));
+        return accounts;
+    }
+}
@@ -0,0 +1,8 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface AccountsNaturalIdRepository {
+    Optional<Accounts> findByNaturalId(final UUID accountRefId);
+}
@@ -0,0 +1,27 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class AccountsNaturalIdRepositoryImpl implements AccountsNaturalIdRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: goes through Hibernate's natural-id resolution (natural-id -> PK cache) backed by the
+    // uc_accounts_account_ref_id unique index, then initialises the addresses with one batched query.
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Accounts> findByNaturalId(final UUID accountRefId) {
+        Optional<Accounts> account = entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Accounts.class)
+                .loadOptional(accountRefId);
+        account.ifPresent(found -> Hibernate.initialize(found.getAddresses()));
+        return account;
+    }
+}
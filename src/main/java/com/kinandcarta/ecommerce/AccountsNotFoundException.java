@@ -0,0 +1,10 @@
+package com.kinandcarta.ecommerce;
+
+// NOTES: an update or patch of an account that does not exist, answered with a 404 by AccountsControllerAdvice.
+// Reads signal a miss with an empty Optional instead. Like the other request-level exceptions it carries no stack
+// trace, it is an expected outcome and filling one in is most of the cost of throwing.
+public class AccountsNotFoundException extends RuntimeException {
+    public AccountsNotFoundException(String message) {
+        super(message, null, false, false);
+    }
+}
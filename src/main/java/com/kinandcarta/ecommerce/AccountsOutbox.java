@@ -0,0 +1,43 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+// NOTES: the write side of the transactional outbox. Runs only inside the caller's transaction (MANDATORY), so the
+// event commits or rolls back with the change it describes. The account is serialized here, as committed.
+@Component
+@Profile("!reactive")
+public class AccountsOutbox {
+    private final AccountsOutboxRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public AccountsOutbox(AccountsOutboxRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void record(final AccountsChangeEvent.Type type, final Accounts account) {
+        repository.save(AccountsOutboxEvent.builder()
+                .type(type)
+                .accountId(account.getId())
+                .accountRefId(account.getAccountRefId())
+                .version(AccountsChangeEvent.versionOf(type, account.getVersion()))
+                .createDateTime(Instant.now())
+                .payload(type == AccountsChangeEvent.Type.DELETED ? null : toJson(account))
+                .build());
+    }
+
+    private String toJson(final Accounts account) {
+        try {
+            return objectMapper.writeValueAsString(account);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Account " + account.getId() + " could not be serialized for the outbox", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// NOTES: a change event, written in the transaction of the change itself (AccountsOutbox). sequence is null until
+// AccountsOutboxRelay has published it, then its position in the change feed. Relayed rows are kept for
+// accounts.changes.retention and serve GET /accounts/changes (LocalAccountsChangeSink).
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@Entity
+@Table(name = "accounts_outbox", indexes = {
+        @Index(name = "ux_accounts_outbox_feed_sequence", columnList = "feed_sequence", unique = true),
+        @Index(name = "ix_accounts_outbox_created_dt", columnList = "created_dt")})
+public class AccountsOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "accounts_outbox_id")
+    @TableGenerator(name = "accounts_outbox_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "accounts_outbox", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", length = 16, nullable = false)
+    private AccountsChangeEvent.Type type;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "account_ref_id", nullable = false)
+    private UUID accountRefId;
+
+    @Column(name = "version")
+    private Long version;
+
+    @Column(name = "created_dt", nullable = false)
+    private Instant createDateTime;
+
+    @Column(name = "feed_sequence")
+    private Long sequence;
+
+    @Column(name = "payload", length = 65535)
+    @ToString.Exclude
+    private String payload;
+
+    AccountsChangeEvent toChangeEvent() {
+        return new AccountsChangeEvent(sequence, type, accountId, accountRefId, version, createDateTime, payload);
+    }
+}
@@ -0,0 +1,120 @@
+package com.kinandcarta.ecommerce;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// NOTES: moves committed outbox rows to the AccountsChangeSink, oldest first, in batches of batchSize. Each batch is
+// one transaction: rows are locked (skip locked), numbered with the next feed sequences and published. The feed
+// sequence counter stays locked until the batch commits, so the relays of several instances number their batches one
+// after the other and sequences become visible in order, a reader paging by sequence never skips an event. If the
+// sink or the commit fails the rows stay unrelayed and are published again on the next run, consumers dedupe by
+// account version. Relayed rows are deleted once older than retention, always a prefix of the feed.
+@Component
+@Profile("!reactive")
+@Slf4j
+public class AccountsOutboxRelay {
+    private final AccountsOutboxRepository repository;
+    private final AccountsChangeSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+
+    public AccountsOutboxRelay(AccountsOutboxRepository repository, AccountsChangeSink sink,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${accounts.changes.relay.batch-size:500}") int batchSize,
+                               @Value("${accounts.changes.retention:P1D}") Duration retention) {
+        this.repository = repository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    // drains the outbox, returns the number of events published
+    public int relay() {
+        int relayed = 0;
+        int batch;
+        do {
+            batch = relayBatch();
+            relayed += batch;
+        } while (batch == batchSize);
+        if (relayed > 0) log.debug("relay: published {} change events", relayed);
+        return relayed;
+    }
+
+    private int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<AccountsOutboxEvent> pending = repository.findNextBatch(PageRequest.of(0, batchSize));
+            if (pending.isEmpty()) return 0;
+            long sequence = reserveSequences(pending.size());
+            for (AccountsOutboxEvent event : pending) event.setSequence(sequence++);
+            repository.flush();
+            sink.publish(pending.stream().map(AccountsOutboxEvent::toChangeEvent).toList());
+            return pending.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+
+    // returns the first of count sequences, the counter row stays locked until the caller's transaction ends
+    private long reserveSequences(final int count) {
+        long next = repository.lockNextSequence().orElseGet(() -> {
+            repository.insertNextSequence();
+            return 1L;
+        });
+        repository.updateNextSequence(next + count);
+        return next;
+    }
+
+    // deletes the relayed events older than retention, returns the number deleted
+    public int prune() {
+        Instant before = Instant.now().minus(retention);
+        Integer pruned = transactionTemplate.execute(status -> repository.findLastSequenceCreatedBefore(before)
+                .map(repository::deleteUpToSequence)
+                .orElse(0));
+        if (pruned != null && pruned > 0) log.debug("prune: deleted {} change events", pruned);
+        return pruned == null ? 0 : pruned;
+    }
+
+    @Configuration
+    @Profile("!reactive")
+    @EnableScheduling
+    @ConditionalOnProperty(value = "accounts.changes.relay.enabled", havingValue = "true", matchIfMissing = true)
+    static class Schedule {
+        private final AccountsOutboxRelay relay;
+
+        Schedule(AccountsOutboxRelay relay) {
+            this.relay = relay;
+        }
+
+        @Scheduled(fixedDelayString = "${accounts.changes.relay.interval:PT0.5S}")
+        void relay() {
+            try {
+                relay.relay();
+            } catch (final RuntimeException e) {
+                log.error("::METHOD, relay, outbox relay failed, retrying on the next run.", e);
+            }
+        }
+
+        @Scheduled(fixedDelayString = "${accounts.changes.prune-interval:PT1M}")
+        void prune() {
+            try {
+                relay.prune();
+            } catch (final RuntimeException e) {
+                log.error("::METHOD, prune, outbox prune failed, retrying on the next run.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface AccountsOutboxRepository extends JpaRepository<AccountsOutboxEvent, Long> {
+    // NOTES: unrelayed rows oldest first, locked FOR UPDATE SKIP LOCKED (lock timeout -2) so the relays of several
+    // instances take disjoint batches instead of waiting on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from AccountsOutboxEvent e where e.sequence is null order by e.id")
+    List<AccountsOutboxEvent> findNextBatch(final Pageable pageable);
+
+    long countBySequenceIsNull();
+
+    List<AccountsOutboxEvent> findBySequenceGreaterThanOrderBySequenceAsc(final long sequence, final Pageable pageable);
+
+    @Query("select min(e.sequence) from AccountsOutboxEvent e")
+    Optional<Long> findFirstSequence();
+
+    @Query("select max(e.sequence) from AccountsOutboxEvent e where e.createDateTime < :before")
+    Optional<Long> findLastSequenceCreatedBefore(@Param("before") final Instant before);
+
+    @Modifying
+    @Query("delete from AccountsOutboxEvent e where e.sequence <= :sequence")
+    int deleteUpToSequence(@Param("sequence") final long sequence);
+
+    // NOTES: the feed sequence counter, the accounts_changes row of id_generator holds the next sequence to hand out.
+    // Locked until the relay's transaction commits, see AccountsOutboxRelay.
+    @Query(value = "SELECT next_val FROM id_generator WHERE sequence_name = 'accounts_changes' FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockNextSequence();
+
+    @Query(value = "SELECT next_val FROM id_generator WHERE sequence_name = 'accounts_changes'", nativeQuery = true)
+    Optional<Long> findNextSequence();
+
+    @Modifying
+    @Query(value = "UPDATE id_generator SET next_val = :next WHERE sequence_name = 'accounts_changes'", nativeQuery = true)
+    int updateNextSequence(@Param("next") final long next);
+
+    // first relay on an empty id_generator table, two instances racing here fail one relay run, it retries
+    @Modifying
+    @Query(value = "INSERT INTO id_generator (sequence_name, next_val) VALUES ('accounts_changes', 1)", nativeQuery = true)
+    int insertNextSequence();
+}
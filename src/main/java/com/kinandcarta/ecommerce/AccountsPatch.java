@@ -0,0 +1,69 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// NOTES: a JSON Merge Patch (RFC 7386) of an account. Only the members present in the document are touched:
+// fields holds the patched account properties, addresses the full replacement list (arrays are not merged,
+// null removes them all) or null when the patch does not mention them. Identity, version and timestamps are
+// not patchable, an unknown member is rejected rather than ignored.
+record AccountsPatch(Map<String, String> fields, @Valid List<Address> addresses) {
+    static final String MEDIA_TYPE = "application/merge-patch+json";
+    static final Set<String> FIELDS = Set.of("firstName", "lastName", "emailAddress");
+
+    static AccountsPatch of(final JsonNode patch, final ObjectMapper objectMapper) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        List<Address> addresses = null;
+        for (Map.Entry<String, JsonNode> member : patch.properties()) {
+            String name = member.getKey();
+            JsonNode value = member.getValue();
+            if (FIELDS.contains(name)) {
+                if (!value.isNull() && !value.isTextual()) {
+                    throw new IllegalArgumentException("Merge patch member " + name + " must be a string");
+                }
+                fields.put(name, value.isNull() ? null : value.textValue());
+            } else if (name.equals("addresses")) {
+                if (!value.isNull() && !value.isArray()) {
+                    throw new IllegalArgumentException("Merge patch member addresses must be an array");
+                }
+                addresses = value.isNull() ? List.of() : Arrays.asList(objectMapper.convertValue(value, Address[].class));
+            } else {
+                throw new IllegalArgumentException("Merge patch member " + name + " can not be patched");
+            }
+        }
+        return new AccountsPatch(fields, addresses);
+    }
+
+    // only the touched properties are validated, an untouched (stored) value is never re-checked. The replacement
+    // addresses cascade through @Valid on the record, their violations are reported as addresses[i].<property>.
+    Set<ConstraintViolation<?>> validate(final Validator validator) {
+        Set<ConstraintViolation<?>> violations = new HashSet<>();
+        fields.forEach((name, value) -> violations.addAll(validator.validateValue(Accounts.class, name, value)));
+        violations.addAll(validator.validate(this));
+        return violations;
+    }
+
+    void applyTo(final Accounts account) {
+        fields.forEach((name, value) -> {
+            switch (name) {
+                case "firstName" -> account.setFirstName(value);
+                case "lastName" -> account.setLastName(value);
+                case "emailAddress" -> account.setEmailAddress(value);
+                default -> throw new IllegalStateException("Unexpected merge patch member " + name);
+            }
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.kinandcarta.ecommerce;
+
+import java.time.Instant;
+import java.util.Map;
+
+public interface AccountsPatchRepository {
+    int patchFields(final Long id, final Map<String, String> fields, final Instant updated, final Long expectedVersion);
+}
@@ -0,0 +1,38 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class AccountsPatchRepositoryImpl implements AccountsPatchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: one UPDATE setting only the patched columns (plus updated_dt and the version), the statement shape
+    // depends on which fields are patched. Like updateFields, a null expected version updates unconditionally and
+    // the persistence context is flushed before and cleared after. Returns the number of rows updated, 0 or 1.
+    @Override
+    @Transactional
+    public int patchFields(final Long id, final Map<String, String> fields, final Instant updated, final Long expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Accounts> update = builder.createCriteriaUpdate(Accounts.class);
+        Root<Accounts> account = update.from(Accounts.class);
+        fields.forEach((name, value) -> update.set(account.<String>get(name), value));
+        update.set(account.<Instant>get("updateDateTime"), updated);
+        update.set(account.<Long>get("version"), builder.sum(account.<Long>get("version"), 1L));
+        update.where(expectedVersion == null
+                ? builder.equal(account.get("id"), id)
+                : builder.and(builder.equal(account.get("id"), id), builder.equal(account.get("version"), expectedVersion)));
+
+        entityManager.flush();
+        int rows = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        return rows;
+    }
+}
@@ -1,9 +1,53 @@
 package com.kinandcarta.ecommerce;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
-public interface AccountsRepository extends JpaRepository<Accounts, Long> {
-    Optional<Accounts> findAccountsByAccountRefId(final String accountRefId);
+// NOTES: reads by id fetch-join the addresses (AccountsByIdRepositoryImpl), reads by accountRefId go through findByNaturalId, pages rely on @BatchSize on Accounts.addresses so the
+// addresses of a whole page are loaded with one IN query instead of one query per account. The email lookups and the version
+// reads are single key probes and always go to the database, no query cache: it is per instance and would miss the writes
+// of the other instances.
+public interface AccountsRepository extends JpaRepository<Accounts, Long>, AccountsByIdRepository, AccountsStreamingRepository,
+        AccountsNaturalIdRepository, AccountsPatchRepository, AccountsLookupRepository, AccountsSearchRepository {
+    // implemented by AccountsByIdRepositoryImpl
+    @Override
+    Optional<Accounts> findById(final Long id);
+
+    List<Accounts> findByIdGreaterThan(final Long id, final Pageable pageable);
+
+    // NOTES: email lookups go through the uc_accounts_emailaddress unique index, compared with the column's collation
+    @EntityGraph(attributePaths = "addresses")
+    Optional<Accounts> findByEmailAddress(final String emailAddress);
+
+    boolean existsByEmailAddress(final String emailAddress);
+
+    // NOTES: conditional reads, two columns by primary/natural key, the account is not hydrated.
+    @Query("select new com.kinandcarta.ecommerce.AccountsVersion(a.version, a.updateDateTime) from Accounts a where a.id = :id")
+    Optional<AccountsVersion> findVersionById(@Param("id") final Long id);
+
+    @Query("select new com.kinandcarta.ecommerce.AccountsVersion(a.version, a.updateDateTime) from Accounts a "
+            + "where a.accountRefId = :accountRefId")
+    Optional<AccountsVersion> findVersionByAccountRefId(@Param("accountRefId") final UUID accountRefId);
+
+    // NOTES: one UPDATE, no load. The version is bumped by hand (bulk updates skip @Version and @UpdateTimestamp),
+    // a null expected version updates unconditionally. Returns the number of rows updated, 0 or 1.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Accounts a set a.firstName = :firstName, a.lastName = :lastName, a.emailAddress = :emailAddress, "
+            + "a.updateDateTime = :updated, a.version = a.version + 1 "
+            + "where a.id = :id and (:version is null or a.version = :version)")
+    int updateFields(@Param("id") final Long id,
+                     @Param("firstName") final String firstName,
+                     @Param("lastName") final String lastName,
+                     @Param("emailAddress") final String emailAddress,
+                     @Param("updated") final Instant updated,
+                     @Param("version") final Long version);
 }
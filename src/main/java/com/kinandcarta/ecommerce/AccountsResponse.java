@@ -0,0 +1,34 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// NOTES: JSON body of every account response, same members and order as the Accounts entity used to produce.
+// Copied from the entity before it is written, so Jackson serializes plain records (Blackbird accessors, see
+// JsonConfiguration) and never sees Hibernate proxies, lazy collections or the Lombok bean. The timestamps are
+// written by IsoInstantSerializer.
+public record AccountsResponse(Long id, UUID accountRefId, String firstName, String lastName, String emailAddress,
+                               List<AddressResponse> addresses,
+                               @JsonSerialize(using = IsoInstantSerializer.class) Instant createDateTime,
+                               @JsonSerialize(using = IsoInstantSerializer.class) Instant updateDateTime,
+                               Long version) {
+    static AccountsResponse of(final Accounts account) {
+        List<AddressResponse> addresses = null;
+        if (account.getAddresses() != null) {
+            addresses = new ArrayList<>(account.getAddresses().size());
+            for (Address address : account.getAddresses()) addresses.add(AddressResponse.of(address));
+        }
+        return new AccountsResponse(account.getId(), account.getAccountRefId(), account.getFirstName(), account.getLastName(),
+                account.getEmailAddress(), addresses, account.getCreateDateTime(), account.getUpdateDateTime(), account.getVersion());
+    }
+
+    static List<AccountsResponse> of(final List<Accounts> accounts) {
+        List<AccountsResponse> responses = new ArrayList<>(accounts.size());
+        for (Accounts account : accounts) responses.add(of(account));
+        return responses;
+    }
+}
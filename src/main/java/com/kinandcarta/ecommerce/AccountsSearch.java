@@ -0,0 +1,66 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// NOTES: criteria of GET /accounts/search, every given criterion must match (AND). Text criteria are prefixes,
+// LIKE 'value%' with the wildcards of the value escaped, so each one is a range scan on its index
+// (ix_accounts_*, ix_address_*, uc_accounts_emailaddress); state is an exact match. Address criteria must all match
+// the same address. They join the addresses into the page query, so the database can drive it from ix_address_* (an IN
+// subquery over accounts is planned per account row by H2 and MySQL), and DISTINCT returns an account with several
+// matching addresses once.
+public record AccountsSearch(String firstName, String lastName, String emailAddress,
+                             String city, String state, String postalCode) {
+    private static final char ESCAPE = '\\';
+
+    boolean isEmpty() {
+        return Stream.of(firstName, lastName, emailAddress, city, state, postalCode).allMatch(AccountsSearch::isBlank);
+    }
+
+    Specification<Accounts> toSpecification() {
+        return (account, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            startsWith(builder, account.get("firstName"), firstName, predicates);
+            startsWith(builder, account.get("lastName"), lastName, predicates);
+            startsWith(builder, account.get("emailAddress"), emailAddress, predicates);
+            if (!isBlank(city) || !isBlank(state) || !isBlank(postalCode)) {
+                Join<Accounts, Address> address = account.join("addresses");
+                startsWith(builder, address.get("city"), city, predicates);
+                if (!isBlank(state)) predicates.add(builder.equal(address.get("state"), state.trim()));
+                startsWith(builder, address.get("postalCode"), postalCode, predicates);
+                query.distinct(true);
+            }
+            return builder.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    static Specification<Accounts> idGreaterThan(final Long after) {
+        return (account, query, builder) -> builder.greaterThan(account.get("id"), after == null ? 0L : after);
+    }
+
+    private static void startsWith(final CriteriaBuilder builder, final Expression<String> column, final String value,
+                                   final List<Predicate> predicates) {
+        if (isBlank(value)) return;
+        predicates.add(builder.like(column, escape(value.trim()) + "%", ESCAPE));
+    }
+
+    static String escape(final String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (char c : value.toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) escaped.append(ESCAPE);
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean isBlank(final String value) {
+        return value == null || value.isBlank();
+    }
+}
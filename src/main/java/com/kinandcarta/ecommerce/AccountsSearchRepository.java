@@ -0,0 +1,9 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface AccountsSearchRepository {
+    List<Accounts> search(final Specification<Accounts> specification, final int limit);
+}
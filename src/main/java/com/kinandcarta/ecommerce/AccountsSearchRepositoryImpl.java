@@ -0,0 +1,38 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class AccountsSearchRepositoryImpl implements AccountsSearchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: JpaSpecificationExecutor pages with a count query, a keyset page only needs ORDER BY id and a row
+    // limit, so the specification is run here. It selects the ids of the page only: the search indexes end in id
+    // (InnoDB secondary indexes carry it anyway), so the page is read from the index, where selecting whole rows
+    // makes the planner walk the primary key in id order instead, filtering every row. The accounts of the page and
+    // their addresses are then fetched by id in one statement.
+    @Override
+    @Transactional(readOnly = true)
+    public List<Accounts> search(final Specification<Accounts> specification, final int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Accounts> account = query.from(Accounts.class);
+        query.select(account.get("id"))
+                .where(specification.toPredicate(account, query, builder))
+                .orderBy(builder.asc(account.get("id")));
+
+        List<Long> ids = entityManager.createQuery(query).setMaxResults(limit).getResultList();
+        if (ids.isEmpty()) return List.of();
+        return entityManager.createQuery("select distinct a from Accounts a left join fetch a.addresses where a.id in :ids order by a.id", Accounts.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+}
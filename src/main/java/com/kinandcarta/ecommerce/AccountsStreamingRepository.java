@@ -0,0 +1,8 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.function.Consumer;
+
+public interface AccountsStreamingRepository {
+    void streamAll(final Consumer<Accounts> consumer);
+    void streamEmailAddresses(final Consumer<String> consumer);
+}
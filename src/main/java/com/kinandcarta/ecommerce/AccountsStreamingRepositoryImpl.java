@@ -0,0 +1,45 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class AccountsStreamingRepositoryImpl implements AccountsStreamingRepository {
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // NOTES: rows come off the JDBC cursor one at a time with their addresses fetch-joined (ordered by account id,
+    // so each account's rows are contiguous), each account is detached once consumed so the persistence context
+    // (and heap) stays flat regardless of the table size.
+    @Override
+    public void streamAll(final Consumer<Accounts> consumer) {
+        try (Stream<Accounts> accounts = entityManager
+                .createQuery("select a from Accounts a left join fetch a.addresses order by a.id", Accounts.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            accounts.forEach(account -> {
+                consumer.accept(account);
+                entityManager.detach(account);
+            });
+        }
+    }
+
+    // NOTES: one column off the cursor, nothing is hydrated or kept in the persistence context
+    @Override
+    @Transactional(readOnly = true)
+    public void streamEmailAddresses(final Consumer<String> consumer) {
+        try (Stream<String> emailAddresses = entityManager
+                .createQuery("select a.emailAddress from Accounts a", String.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            emailAddresses.forEach(consumer);
+        }
+    }
+}
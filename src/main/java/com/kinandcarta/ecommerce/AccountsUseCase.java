@@ -1,10 +1,23 @@
 package com.kinandcarta.ecommerce;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Set;
+import java.util.List;
 
 public interface AccountsUseCase {
 
-    ResponseEntity<Set<Address>> findAllAddressesForAccount(final Long id);
+    ResponseEntity<AccountsResponse> patch(final Long id, final JsonNode patch, final String ifMatch);
+
+    ResponseEntity<List<AddressResponse>> findAllAddressesForAccount(final Long id, final WebRequest request);
+
+    ResponseEntity<StreamingResponseBody> streamAll();
+
+    ResponseEntity<AccountsLookup.Response> lookup(final AccountsLookup.Request request);
+
+    ResponseEntity<AccountsResponse> findByEmailAddress(final String email);
+
+    ResponseEntity<CursorPage<AccountsResponse>> search(final AccountsSearch search, final Long after, final Integer limit);
 }
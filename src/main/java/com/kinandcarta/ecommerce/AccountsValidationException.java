@@ -0,0 +1,18 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.validation.ConstraintViolation;
+
+import java.util.Set;
+
+public class AccountsValidationException extends RuntimeException {
+    private final transient Set<? extends ConstraintViolation<?>> violations;
+
+    public AccountsValidationException(Set<? extends ConstraintViolation<?>> violations) {
+        super("Account failed validation, " + violations.size() + " violation(s).", null, false, false);
+        this.violations = violations;
+    }
+
+    public Set<? extends ConstraintViolation<?>> getViolations() {
+        return violations;
+    }
+}
@@ -0,0 +1,21 @@
+package com.kinandcarta.ecommerce;
+
+import java.time.Instant;
+
+// NOTES: the validators of an account for conditional reads, its version (strong ETag, see AccountsETag) and
+// updated_dt (Last-Modified). Read on its own by primary or natural key, without the account's columns or addresses.
+public record AccountsVersion(Long version, Instant updateDateTime) {
+
+    static AccountsVersion of(final Accounts account) {
+        return new AccountsVersion(account.getVersion(), account.getUpdateDateTime());
+    }
+
+    String eTag() {
+        return version == null ? null : AccountsETag.of(version);
+    }
+
+    // -1 when unknown, the "no Last-Modified" value of WebRequest.checkNotModified
+    long lastModified() {
+        return updateDateTime == null ? -1L : updateDateTime.toEpochMilli();
+    }
+}
@@ -7,6 +7,9 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Getter
 @Setter
@@ -15,12 +18,20 @@ import lombok.extern.slf4j.Slf4j;
 @Builder
 @AllArgsConstructor
 @Entity
-@Table(name = "address")
+@Table(name = "address", indexes = {
+        @Index(name = "ix_address_city", columnList = "city"),
+        @Index(name = "ix_address_state_city", columnList = "state, city"),
+        @Index(name = "ix_address_postal_code", columnList = "postalCode")})
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
 @Slf4j
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Address {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "address_id")
+    @TableGenerator(name = "address_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "address", allocationSize = 50)
     private Long id;
 
     @NotNull
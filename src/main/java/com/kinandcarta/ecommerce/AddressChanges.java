@@ -0,0 +1,59 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// NOTES: diff of an account's current addresses against the requested ones, matched by address id. A requested
+// address without an id, or with an id the account does not own, is added (its id is cleared). A matched address
+// has the requested fields copied onto the current instance and is listed as changed only if a field differed.
+// Current addresses that were not requested are removed.
+record AddressChanges(List<Address> added, List<Address> changed, List<Address> removed) {
+
+    static AddressChanges merge(final Collection<Address> current, final Collection<Address> requested) {
+        Map<Long, Address> currentById = new HashMap<>();
+        if (current != null) {
+            for (Address address : current) currentById.put(address.getId(), address);
+        }
+        List<Address> added = new ArrayList<>();
+        List<Address> changed = new ArrayList<>();
+        Set<Long> kept = new HashSet<>();
+        if (requested != null) {
+            for (Address address : requested) {
+                Address existing = address.getId() == null ? null : currentById.get(address.getId());
+                if (existing == null) {
+                    address.setId(null);
+                    added.add(address);
+                } else if (kept.add(existing.getId()) && copy(address, existing)) {
+                    changed.add(existing);
+                }
+            }
+        }
+        List<Address> removed = new ArrayList<>();
+        for (Address address : currentById.values()) {
+            if (!kept.contains(address.getId())) removed.add(address);
+        }
+        return new AddressChanges(added, changed, removed);
+    }
+
+    boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    private static boolean copy(final Address from, final Address to) {
+        boolean changed = false;
+        if (!Objects.equals(from.getAddress1(), to.getAddress1())) { to.setAddress1(from.getAddress1()); changed = true; }
+        if (!Objects.equals(from.getAddress2(), to.getAddress2())) { to.setAddress2(from.getAddress2()); changed = true; }
+        if (!Objects.equals(from.getCity(), to.getCity())) { to.setCity(from.getCity()); changed = true; }
+        if (!Objects.equals(from.getState(), to.getState())) { to.setState(from.getState()); changed = true; }
+        if (!Objects.equals(from.getProvince(), to.getProvince())) { to.setProvince(from.getProvince()); changed = true; }
+        if (!Objects.equals(from.getPostalCode(), to.getPostalCode())) { to.setPostalCode(from.getPostalCode()); changed = true; }
+        if (!Objects.equals(from.getCountry(), to.getCountry())) { to.setCountry(from.getCountry()); changed = true; }
+        return changed;
+    }
+}
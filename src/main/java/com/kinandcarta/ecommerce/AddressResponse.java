@@ -0,0 +1,20 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// NOTES: JSON body of an address, part of AccountsResponse and of GET /accounts/{id}/addresses.
+public record AddressResponse(Long id, String address1, String address2, String city, String state, String province,
+                              String postalCode, String country) {
+    static AddressResponse of(final Address address) {
+        return new AddressResponse(address.getId(), address.getAddress1(), address.getAddress2(), address.getCity(),
+                address.getState(), address.getProvince(), address.getPostalCode(), address.getCountry());
+    }
+
+    static List<AddressResponse> of(final Collection<Address> addresses) {
+        List<AddressResponse> responses = new ArrayList<>(addresses.size());
+        for (Address address : addresses) responses.add(of(address));
+        return responses;
+    }
+}
@@ -0,0 +1,27 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BulkImportReport(int received, int created, int rejected, List<Result> results) {
+    public enum Status {CREATED, INVALID, FAILED}
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(int index, Status status, Long id, UUID accountRefId,
+                         List<ValidationErrorResponse.Violation> errors) {
+        static Result created(final int index, final Accounts account) {
+            return new Result(index, Status.CREATED, account.getId(), account.getAccountRefId(), null);
+        }
+
+        static Result invalid(final int index, final List<ValidationErrorResponse.Violation> errors) {
+            return new Result(index, Status.INVALID, null, null, errors);
+        }
+
+        static Result failed(final int index, final String message) {
+            return new Result(index, Status.FAILED, null, null,
+                    List.of(new ValidationErrorResponse.Violation("", message)));
+        }
+    }
+}
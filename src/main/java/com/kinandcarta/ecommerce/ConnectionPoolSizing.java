@@ -0,0 +1,61 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// NOTES: derives the Hikari pool size from the database's limits unless spring.datasource.hikari.maximum-pool-size is
+// set. HikariCP's rule of thumb, (database cores * 2) + effective spindles, is the number of connections the database
+// serves well from all instances together, each instance takes its share. The share is capped to the instance's part
+// of max_connections less the connections reserved for admin, migrations and other clients. Without database-cores
+// the pool keeps DEFAULT_POOL_SIZE (capped the same way): this host's CPUs say nothing about the database server's,
+// a 2-CPU container would shrink the pool to 5 in front of a 32-core MySQL without a word. The pool is fixed size
+// (minimum-idle = maximum). A write transaction can hold two connections, its own and the one its @TableGenerator
+// fetches an id block on, so accounts.db.limiter.permits defaults to the pool size less one connection per generator.
+public class ConnectionPoolSizing implements EnvironmentPostProcessor {
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    static final String MINIMUM_IDLE = "spring.datasource.hikari.minimum-idle";
+    static final String LIMITER_PERMITS = "accounts.db.limiter.permits";
+    static final String DATABASE_CORES = "accounts.db.pool.database-cores";
+    static final int DEFAULT_POOL_SIZE = 20;
+    // @TableGenerator on Accounts, Address and AccountsOutboxEvent, each fetches one block at a time (pooled-lo)
+    static final int ID_GENERATORS = 3;
+
+    @Override
+    public void postProcessEnvironment(final ConfigurableEnvironment environment, final SpringApplication application) {
+        Map<String, Object> derived = new HashMap<>();
+        Integer size = environment.getProperty(MAXIMUM_POOL_SIZE, Integer.class);
+        if (size == null) {
+            int instances = environment.getProperty("accounts.db.pool.instances", Integer.class, 1);
+            int maxConnections = environment.getProperty("accounts.db.pool.max-connections", Integer.class, 151);
+            int reservedConnections = environment.getProperty("accounts.db.pool.reserved-connections", Integer.class, 10);
+            Integer databaseCores = environment.getProperty(DATABASE_CORES, Integer.class);
+            size = databaseCores == null
+                    ? Math.min(DEFAULT_POOL_SIZE, (maxConnections - reservedConnections) / instances)
+                    : poolSize(databaseCores,
+                            environment.getProperty("accounts.db.pool.effective-spindles", Integer.class, 1),
+                            instances, maxConnections, reservedConnections);
+            size = Math.max(ID_GENERATORS + 2, size);
+            derived.put(MAXIMUM_POOL_SIZE, size);
+            if (!environment.containsProperty(MINIMUM_IDLE)) derived.put(MINIMUM_IDLE, size);
+        }
+        if (!environment.containsProperty(LIMITER_PERMITS)) derived.put(LIMITER_PERMITS, limiterPermits(size));
+        environment.getPropertySources().addLast(new MapPropertySource("accountsConnectionPoolSizing", derived));
+    }
+
+    // at least two writers besides the id block fetches
+    static int poolSize(final int databaseCores, final int effectiveSpindles, final int instances,
+                        final int maxConnections, final int reservedConnections) {
+        int share = Math.ceilDiv(databaseCores * 2 + effectiveSpindles, instances);
+        int limit = (maxConnections - reservedConnections) / instances;
+        return Math.max(ID_GENERATORS + 2, Math.min(share, limit));
+    }
+
+    static int limiterPermits(final int poolSize) {
+        return Math.max(1, poolSize - ID_GENERATORS);
+    }
+}
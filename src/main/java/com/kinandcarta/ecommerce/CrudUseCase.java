@@ -1,17 +1,19 @@
 package com.kinandcarta.ecommerce;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.Set;
+import java.util.UUID;
 
-public interface CrudUseCase<T> {
+// T is the request body, R the response body
+public interface CrudUseCase<T, R> {
 
-    ResponseEntity<T> create(final T model);
-    ResponseEntity<T> update(final Long id, final T model);
+    ResponseEntity<R> create(final T model);
+    ResponseEntity<R> update(final Long id, final T model, final String ifMatch);
     void delete(final Long id);
-    ResponseEntity<T> findById(final Long id);
+    ResponseEntity<R> findById(final Long id, final WebRequest request);
 
-    ResponseEntity<Accounts> findByAccountIdRef(final String id);
-    ResponseEntity<Set<T>> findAll();
+    ResponseEntity<R> findByAccountIdRef(final UUID id, final WebRequest request);
+    ResponseEntity<CursorPage<R>> findAll(final Long after, final Integer limit);
 
 }
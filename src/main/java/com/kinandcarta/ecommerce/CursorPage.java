@@ -0,0 +1,20 @@
+package com.kinandcarta.ecommerce;
+
+import java.util.List;
+import java.util.function.Function;
+
+// NOTES: keyset page, nextCursor is the id to pass as ?after= for the following page, null on the last page.
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    // null is the default page size, anything above MAX_LIMIT is clamped, callers reject limit < 1
+    static int limitToPageSize(final Integer limit) {
+        if (limit == null) return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    <R> CursorPage<R> map(final Function<List<T>, List<R>> mapper) {
+        return new CursorPage<>(mapper.apply(items), nextCursor);
+    }
+}
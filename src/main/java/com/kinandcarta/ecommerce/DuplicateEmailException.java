@@ -0,0 +1,7 @@
+package com.kinandcarta.ecommerce;
+
+public class DuplicateEmailException extends RuntimeException {
+    public DuplicateEmailException(String message) {
+        super(message, null, false, false);
+    }
+}
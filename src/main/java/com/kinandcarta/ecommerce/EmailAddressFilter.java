@@ -0,0 +1,184 @@
+package com.kinandcarta.ecommerce;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// NOTES: Bloom filter over the normalized (trimmed, lower case) email addresses of all accounts. "No" is definite
+// for every address this instance has seen, "maybe" has to be confirmed against uc_accounts_emailaddress. Bits are
+// never cleared: a deleted or changed address stays a "maybe" (one extra key lookup) until the next rebuild.
+// Addresses are added after commit, and a rebuild collects concurrent additions as well as the table snapshot, so
+// nothing committed here is lost. Accounts written by other instances are only picked up by the periodic rebuild, so
+// the filter only decides whether create prechecks a duplicate, the unique constraint stays the authority for it.
+@Component
+@Profile("!reactive")
+@Slf4j
+public class EmailAddressFilter implements MeterBinder {
+    private final AccountsRepository repository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final LongAdder probableHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile Bits bits;
+    private volatile Bits rebuilding;
+
+    public EmailAddressFilter(AccountsRepository repository,
+                              @Value("${accounts.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                              @Value("${accounts.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bits = Bits.sized(expectedInsertions, falsePositiveRate);
+    }
+
+    static String normalize(final String emailAddress) {
+        return emailAddress == null ? null : emailAddress.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean mightContain(final String emailAddress) {
+        if (emailAddress == null) return false;
+        boolean maybe = bits.mightContain(normalize(emailAddress));
+        if (maybe) probableHits.increment();
+        return maybe;
+    }
+
+    // a probable hit that the database did not confirm
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    public void put(final String emailAddress) {
+        if (emailAddress == null) return;
+        String normalized = normalize(emailAddress);
+        // rebuilding is read before bits, so an address is in the snapshot, the new filter or both
+        Bits next = rebuilding;
+        if (next != null) next.put(normalized);
+        bits.put(normalized);
+    }
+
+    // Adds once the surrounding transaction commits (right away without one), a rolled back address is never added.
+    public void putAfterCommit(final String emailAddress) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(emailAddress);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(emailAddress);
+            }
+        });
+    }
+
+    // Fills a new filter from the table, sized for the larger of the configured and the actual number of addresses,
+    // and swaps it in. Additions made while the table is read go to both filters.
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long count = repository.count();
+        Bits next = Bits.sized(Math.max(expectedInsertions, count * 2), falsePositiveRate);
+        rebuilding = next;
+        try {
+            repository.streamEmailAddresses(emailAddress -> next.put(normalize(emailAddress)));
+            bits = next;
+            log.debug("rebuild: email address filter holds {} addresses, {} bits", count, next.size());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    // accounts.email.filter.hits (probable hits) and accounts.email.filter.false.positives
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("accounts.email.filter.hits", probableHits, LongAdder::doubleValue).register(registry);
+        FunctionCounter.builder("accounts.email.filter.false.positives", falsePositives, LongAdder::doubleValue).register(registry);
+    }
+
+    @Configuration
+    @Profile("!reactive")
+    @EnableScheduling
+    static class Schedule {
+        private final EmailAddressFilter filter;
+
+        Schedule(EmailAddressFilter filter) {
+            this.filter = filter;
+        }
+
+        @Scheduled(initialDelayString = "${accounts.email-filter.rebuild-interval:PT10M}",
+                fixedDelayString = "${accounts.email-filter.rebuild-interval:PT10M}")
+        void rebuild() {
+            try {
+                filter.rebuild();
+            } catch (final Exception e) {
+                log.error("::METHOD, rebuild, email address filter not rebuilt.", e);
+            }
+        }
+    }
+
+    // k probes per address from two 64 bit hashes (Kirsch-Mitzenmacher), bits set with CAS so puts need no lock
+    private record Bits(AtomicLongArray words, long size, int hashes) {
+        static Bits sized(final long expectedInsertions, final double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            long size = Math.max(64, (long) (-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+            int hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+            return new Bits(new AtomicLongArray((int) ((size + 63) / 64)), size, hashes);
+        }
+
+        boolean mightContain(final String value) {
+            long hash = hash(value);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        void put(final String value) {
+            long hash = hash(value);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                } while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        // FNV-1a over the UTF-16 chars
+        private static long hash(final String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // splitmix64 finalizer, spreads FNV's weak low bits
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
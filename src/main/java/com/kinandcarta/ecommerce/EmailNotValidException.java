@@ -2,6 +2,6 @@ package com.kinandcarta.ecommerce;
 
 public class EmailNotValidException extends RuntimeException {
     public EmailNotValidException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
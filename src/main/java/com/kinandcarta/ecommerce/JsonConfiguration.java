@@ -0,0 +1,16 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// NOTES: Spring Boot registers every Module bean with the ObjectMapper used by the message converters. Blackbird
+// replaces reflective getter/constructor calls with generated lambdas (LambdaMetafactory), once per property when a
+// serializer is built, the response records (AccountsResponse, AddressResponse) are written without reflection.
+@Configuration(proxyBeanMethods = false)
+public class JsonConfiguration {
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
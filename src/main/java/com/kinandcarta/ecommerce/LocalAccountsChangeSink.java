@@ -0,0 +1,125 @@
+package com.kinandcarta.ecommerce;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// NOTES: the change feed served by this service, read from the accounts_outbox table. AccountsOutboxRelay numbers
+// the events (sequence 1, 2, 3... across all instances) and the rows are kept for accounts.changes.retention, so every
+// instance serves the same feed and a consumer can poll any of them. Readers ask for the events after the last
+// sequence they saw. A reader whose sequence is pruned, or ahead of the feed, gets ChangesGoneException and re-reads
+// the accounts in full. Long polls are woken when a relay of this instance commits, and within refresh-interval for
+// events relayed by another instance.
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(value = "accounts.changes.sink", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalAccountsChangeSink implements AccountsChangeSink {
+    private final AccountsOutboxRepository repository;
+    private long lastSeen;
+    private CompletableFuture<Void> nextPublish = new CompletableFuture<>();
+
+    public LocalAccountsChangeSink(AccountsOutboxRepository repository) {
+        this.repository = repository;
+    }
+
+    // the events are in the outbox with their sequence already, readers only have to be woken once they are committed
+    @Override
+    public void publish(final List<AccountsChangeEvent> published) {
+        if (published.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    public AccountsChanges changesSince(final long since, final int limit) {
+        long last = lastSequence();
+        long oldest = repository.findFirstSequence().orElse(last + 1);
+        if (since > last || since < oldest - 1) {
+            throw new ChangesGoneException(since, oldest, last);
+        }
+        List<AccountsChangeEvent> page = repository.findBySequenceGreaterThanOrderBySequenceAsc(since, PageRequest.of(0, limit))
+                .stream().map(AccountsOutboxEvent::toChangeEvent).toList();
+        return new AccountsChanges(page, page.isEmpty() ? since : page.get(page.size() - 1).sequence());
+    }
+
+    // the last sequence handed out, from the counter, so it is still known once every event is pruned
+    public long lastSequence() {
+        return repository.findNextSequence().orElse(1L) - 1;
+    }
+
+    // completes on the next publish, take it before reading so a publish in between is not missed
+    public synchronized CompletableFuture<Void> nextPublish() {
+        return nextPublish;
+    }
+
+    // wakes the waiting readers when the feed has moved since the last refresh, no query while nobody waits
+    void refresh() {
+        synchronized (this) {
+            if (nextPublish.getNumberOfDependents() == 0) return;
+        }
+        long last = lastSequence();
+        CompletableFuture<Void> waiting;
+        synchronized (this) {
+            if (last <= lastSeen) return;
+            lastSeen = last;
+            waiting = nextPublish;
+            nextPublish = new CompletableFuture<>();
+        }
+        waiting.complete(null);
+    }
+
+    public record AccountsChanges(List<AccountsChangeEvent> events, long next) {
+    }
+
+    public static class ChangesGoneException extends RuntimeException {
+        private final long last;
+
+        public ChangesGoneException(final long since, final long oldest, final long last) {
+            super("Changes after " + since + " are not retained, available " + (oldest - 1) + " to " + last);
+            this.last = last;
+        }
+
+        public long last() {
+            return last;
+        }
+    }
+
+    @Configuration
+    @Profile("!reactive")
+    @ConditionalOnProperty(value = "accounts.changes.sink", havingValue = "local", matchIfMissing = true)
+    @EnableScheduling
+    static class Schedule {
+        private final LocalAccountsChangeSink sink;
+
+        Schedule(LocalAccountsChangeSink sink) {
+            this.sink = sink;
+        }
+
+        @Scheduled(fixedDelayString = "${accounts.changes.local.refresh-interval:PT0.5S}")
+        void refresh() {
+            try {
+                sink.refresh();
+            } catch (final RuntimeException e) {
+                log.error("::METHOD, refresh, change feed not refreshed.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.kinandcarta.ecommerce;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// NOTES: @Timed is only honoured on non-controller beans through this aspect (AccountsHandler).
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+    @Bean
+    public TimedAspect timedAspect(final MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
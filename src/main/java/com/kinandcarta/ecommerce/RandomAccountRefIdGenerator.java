@@ -0,0 +1,16 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Version 4 UUIDs from the shared SecureRandom, unpredictable but serialised across threads and scattered in the index.
+@Component
+@ConditionalOnProperty(name = "accounts.ref-id.generator", havingValue = "random")
+public class RandomAccountRefIdGenerator implements AccountRefIdGenerator {
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
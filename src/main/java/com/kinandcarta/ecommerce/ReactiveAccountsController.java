@@ -0,0 +1,180 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// NOTES: the "reactive" profile's AccountsController, same routes and status codes on WebFlux + R2DBC
+// (ReactiveAccountsControllerAdvice maps the failures like AccountsControllerAdvice).
+// No request thread is held while the database works, NDJSON streams are backpressured by the client.
+// Bulk import stays on the servlet stack.
+@RestController
+@Profile("reactive")
+@Slf4j
+public class ReactiveAccountsController implements ReactiveCrudUseCase<Accounts>, ReactiveAccountsUseCase {
+    final
+    ReactiveAccountsHandler accountsHandler;
+    final
+    AccountRefIdGenerator accountRefIdGenerator;
+    final
+    ObjectMapper objectMapper;
+    final
+    MeterRegistry meterRegistry;
+
+    public ReactiveAccountsController(ReactiveAccountsHandler accountsHandler, AccountRefIdGenerator accountRefIdGenerator,
+                                      ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.accountsHandler = accountsHandler;
+        this.accountRefIdGenerator = accountRefIdGenerator;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @PostMapping(value = "/accounts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Accounts>> create(@RequestBody final Accounts model) {
+        model.setAccountRefId(accountRefIdGenerator.next());
+        return accountsHandler.create(model).map(ResponseEntity::ok);
+    }
+
+    @Override
+    @PutMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Accounts>> update(@PathVariable("id") @NotNull final Long id, @RequestBody final Accounts model,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+        Objects.requireNonNull(id, "ID not provided for, update");
+        log.debug("update  for id - {}", id);
+        return accountsHandler.update(id, model, AccountsETag.expectedVersion(ifMatch))
+                .map(updated -> ResponseEntity.ok().eTag(AccountsETag.of(updated.getVersion())).body(updated));
+    }
+
+    @Override
+    @PatchMapping(value = "/accounts/{id}", consumes = AccountsPatch.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Accounts>> patch(@PathVariable("id") @NotNull final Long id, @RequestBody final JsonNode patch,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+        Objects.requireNonNull(id, "ID not provided for, patch");
+        log.debug("patch  for id - {}", id);
+        return Mono.fromCallable(() -> AccountsPatch.of(patch, objectMapper))
+                .flatMap(accountsPatch -> accountsHandler.patch(id, accountsPatch, AccountsETag.expectedVersion(ifMatch)))
+                .map(patched -> ResponseEntity.ok().eTag(AccountsETag.of(patched.getVersion())).body(patched));
+    }
+
+    @Override
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @DeleteMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Void> delete(@PathVariable("id") @NotNull final Long id) {
+        Objects.requireNonNull(id, "ID not provided for, delete");
+        log.debug("delete  for id - {}", id);
+        return accountsHandler.delete(id);
+    }
+
+    @Override
+    @GetMapping(value = "/accounts/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Accounts>> findById(@PathVariable("id") @NotNull final Long id, final ServerWebExchange exchange) {
+        log.debug("findById  for id - {}", id);
+        return notModified(exchange, () -> accountsHandler.findVersion(id))
+                .flatMap(notModified -> notModified
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<Accounts>build())
+                        : respond("findById", accountsHandler.findById(id)
+                                .map(account -> versioned(AccountsVersion.of(account), account))));
+    }
+
+    @Override
+    @GetMapping(value = "/accounts/{id}/reference", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Accounts>> findByAccountIdRef(@PathVariable("id") @NotNull final UUID id,
+                                                             final ServerWebExchange exchange) {
+        log.debug("findByAccountIdRef  for id - {}", id);
+        return notModified(exchange, () -> accountsHandler.findVersionByAccountIdRef(id))
+                .flatMap(notModified -> notModified
+                        ? Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<Accounts>build())
+                        : respond("findByAccountIdRef", accountsHandler.findByAccountIdRef(id)
+                                .map(account -> versioned(AccountsVersion.of(account), account))));
+    }
+
+    @Override
+    @GetMapping(value = "/accounts", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<CursorPage<Accounts>>> findAll(@RequestParam(value = "after", required = false) final Long after,
+                                                              @RequestParam(value = "limit", required = false) final Integer limit) {
+        log.debug("findAll after - {}, limit - {}", after, limit);
+        if (limit != null && limit < 1) return Mono.just(ResponseEntity.badRequest().build());
+        return found("findAll", accountsHandler.findAll(after, CursorPage.limitToPageSize(limit)));
+    }
+
+    @Override
+    @GetMapping(value = "/accounts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Accounts> streamAll() {
+        log.debug("streamAll...");
+        return accountsHandler.streamAll();
+    }
+
+    @Override
+    @GetMapping(value = "/accounts/{id}/addresses", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Address>>> findAllAddressesForAccount(@PathVariable("id") @NotNull final Long id,
+                                                                          final ServerWebExchange exchange) {
+        log.debug("findAllAddressesForAccount  for id - {}", id);
+        // the version lookup doubles as the existence check, address changes bump the account version
+        return respond("findAllAddressesForAccount", accountsHandler.findVersion(id)
+                .map(version -> exchange.checkNotModified(version.eTag(), Instant.ofEpochMilli(version.lastModified()))
+                        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).build()
+                        : versioned(version, accountsHandler.findAllAddressesForAccount(id))));
+    }
+
+    @Override
+    @PostMapping(value = "/accounts/lookup", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<AccountsLookup>> lookup(@RequestBody final AccountsLookup.Request request) {
+        int size = request == null ? 0 : request.size();
+        log.debug("lookup for - {} identifiers", size);
+        if (size < 1 || size > AccountsLookup.MAX_SIZE) return Mono.just(ResponseEntity.badRequest().build());
+        return found("lookup", accountsHandler.lookup(request.distinctIds(), request.distinctRefs()));
+    }
+
+    // Empty is a 404, failures are mapped by ReactiveAccountsControllerAdvice.
+    private <T> Mono<ResponseEntity<T>> found(final String operation, final Mono<T> result) {
+        return respond(operation, result.map(ResponseEntity::ok));
+    }
+
+    private <T> Mono<ResponseEntity<T>> respond(final String operation, final Mono<ResponseEntity<T>> result) {
+        return result
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    countFailure(operation, AccountsController.NOT_FOUND);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    // Same rules as AccountsController.notModified, the validators are read before the account only when the
+    // request is conditional.
+    private Mono<Boolean> notModified(final ServerWebExchange exchange, final Supplier<Mono<AccountsVersion>> current) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        if (!headers.containsKey(HttpHeaders.IF_NONE_MATCH) && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+            return Mono.just(false);
+        }
+        return current.get()
+                .map(version -> exchange.checkNotModified(version.eTag(), Instant.ofEpochMilli(version.lastModified())))
+                .defaultIfEmpty(false);
+    }
+
+    private static <T> ResponseEntity<T> versioned(final AccountsVersion version, final T body) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (version.version() != null) ok.eTag(version.eTag());
+        if (version.updateDateTime() != null) ok.lastModified(version.updateDateTime());
+        return ok.body(body);
+    }
+
+    private void countFailure(final String operation, final String exception) {
+        meterRegistry.counter(AccountsController.FAILURES, "operation", operation, "exception", exception).increment();
+    }
+}
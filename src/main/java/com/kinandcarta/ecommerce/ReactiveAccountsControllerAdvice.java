@@ -0,0 +1,83 @@
+package com.kinandcarta.ecommerce;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ServerWebExchange;
+
+// NOTES: AccountsControllerAdvice for ReactiveAccountsController, the same statuses for the same exceptions: not found
+// a 404, invalid input a 400, a duplicate email address a 409 (any other integrity violation a 400) and a lost
+// optimistic lock a 409, or a 412 with If-Match. Errors a Mono signals end up here as well as thrown ones. Anything
+// else is left to WebFlux's error handling (a 500).
+@RestControllerAdvice(assignableTypes = ReactiveAccountsController.class)
+@Profile("reactive")
+@Slf4j
+public class ReactiveAccountsControllerAdvice {
+    final
+    MeterRegistry meterRegistry;
+
+    public ReactiveAccountsControllerAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ExceptionHandler(AccountsValidationException.class)
+    public ResponseEntity<ValidationErrorResponse> validationFailed(final AccountsValidationException e, final HandlerMethod handler) {
+        String operation = countFailure(handler, e);
+        log.warn("::METHOD, {}, validation failed, {}", operation, e.getMessage());
+        return ResponseEntity.badRequest().body(ValidationErrorResponse.of(e.getViolations()));
+    }
+
+    @ExceptionHandler({AccountsNotFoundException.class, EntityNotFoundException.class})
+    public ResponseEntity<Void> notFound(final RuntimeException e, final HandlerMethod handler) {
+        String operation = countFailure(handler, e);
+        log.debug("::METHOD, {}, {}", operation, e.getMessage());
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler({EmailNotValidException.class, IllegalArgumentException.class})
+    public ResponseEntity<Void> badRequest(final RuntimeException e, final HandlerMethod handler) {
+        String operation = countFailure(handler, e);
+        log.warn("::METHOD, {}, rejected, {}", operation, e.getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<Void> duplicateEmailAddress(final RuntimeException e, final HandlerMethod handler) {
+        String operation = countFailure(handler, e);
+        log.warn("::METHOD, {}, E-mail address already registered.", operation);
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Void> integrityViolation(final DataIntegrityViolationException e, final HandlerMethod handler) {
+        if (AccountsControllerAdvice.isDuplicateEmailAddress(e)) return duplicateEmailAddress(e, handler);
+        String operation = countFailure(handler, e);
+        log.warn("::METHOD, {}, rejected, {}", operation, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> versionConflict(final OptimisticLockingFailureException e, final HandlerMethod handler,
+                                                final ServerWebExchange exchange) {
+        String operation = countFailure(handler, e);
+        log.warn("::METHOD, {}, {}", operation, e.getMessage());
+        return ResponseEntity.status(exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_MATCH)
+                ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+    }
+
+    private String countFailure(final HandlerMethod handler, final Exception e) {
+        String operation = handler.getMethod().getName();
+        meterRegistry.counter(AccountsController.FAILURES, "operation", operation, "exception", e.getClass().getSimpleName()).increment();
+        return operation;
+    }
+}
@@ -0,0 +1,488 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.spi.Row;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// NOTES: R2DBC counterpart of AccountsHandler on the same tables. Accounts and their addresses come back from
+// one left join ordered by account id, consecutive rows are folded into an account, so findAll/streamAll are
+// backpressured streams and never hold more than one account's rows. Ids are reserved before the write
+// transaction starts (ReactiveIdAllocator). Timestamps are stored as UTC datetime, like the JPA side on a UTC server.
+// Every write inserts its change event into accounts_outbox in the same transaction, like AccountsOutbox. This profile
+// has no relay or feed of its own: AccountsOutboxRelay on a servlet instance of the same database publishes the rows.
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveAccountsHandler implements ReactiveServiceHandler {
+    private static final String SELECT_ACCOUNTS = "SELECT a.id, a.account_ref_id, a.first_name, a.last_name, "
+            + "a.email_address, a.created_dt, a.updated_dt, a.version, ad.id AS address_id, ad.street_address, ad.second_address, "
+            + "ad.city, ad.state, ad.province, ad.postal_code, ad.country FROM ";
+    private static final String JOIN_ADDRESSES = " LEFT JOIN accounts_addresses aa ON aa.accounts_id = a.id "
+            + "LEFT JOIN address ad ON ad.id = aa.addresses_id ";
+    private static final String ORDER = " ORDER BY a.id, ad.id";
+    private static final String OUTBOX = "accounts_outbox";
+    private static final Map<String, String> COLUMNS = Map.of(
+            "firstName", "first_name", "lastName", "last_name", "emailAddress", "email_address");
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final ReactiveIdAllocator idAllocator;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveAccountsHandler(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                   ReactiveIdAllocator idAllocator, Validator validator, ObjectMapper objectMapper) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.idAllocator = idAllocator;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Accounts> create(final Accounts model) {
+        log.debug("create: model ->{}", model);
+        return assertValid(model, Default.class, Accounts.Assigned.class)
+                .then(idAllocator.next("accounts"))
+                .doOnNext(model::setId)
+                .then(assignAddressIds(model.getAddresses()))
+                .then(idAllocator.next(OUTBOX))
+                .flatMap(eventId -> {
+                    Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+                    model.setCreateDateTime(now);
+                    model.setUpdateDateTime(now);
+                    model.setVersion(0L);
+                    return transactionalOperator.transactional(insertAccount(model)
+                            .then(insertAddresses(model.getId(), model.getAddresses()))
+                            .then(insertEvent(eventId, AccountsChangeEvent.Type.CREATED, model)));
+                })
+                .thenReturn(model);
+    }
+
+    @Override
+    public Mono<Accounts> update(final Long id, final Accounts model) {
+        return update(id, model, null);
+    }
+
+    // Same rules as AccountsHandler.update: without addresses one versioned UPDATE, with addresses the current
+    // account is read, the addresses diffed (AddressChanges) and only the changed rows written, guarded by the
+    // version that was read. Returns the account as stored, re-read in the write transaction for its change event.
+    @Override
+    public Mono<Accounts> update(final Long id, final Accounts model, final Long expectedVersion) {
+        log.debug("update: id -> {}, model -> {}", id, model);
+        return assertValid(model, Default.class)
+                .then(idAllocator.next(OUTBOX))
+                .flatMap(eventId -> model.getAddresses() == null
+                        ? transactionalOperator.transactional(updateAccount(id, fields(model), expectedVersion)
+                                .then(recordUpdated(eventId, id)))
+                        : loadForUpdate(id, expectedVersion)
+                                .flatMap(existing -> writeWithAddresses(existing, fields(model), model.getAddresses(), eventId)));
+    }
+
+    // Same rules as AccountsHandler.patch, the UPDATE lists only the patched columns.
+    @Override
+    public Mono<Accounts> patch(final Long id, final AccountsPatch patch, final Long expectedVersion) {
+        log.debug("patch: id -> {}, fields -> {}", id, patch.fields().keySet());
+        Mono<Accounts> write;
+        if (patch.addresses() != null) {
+            write = idAllocator.next(OUTBOX).flatMap(eventId -> loadForUpdate(id, expectedVersion)
+                    .flatMap(existing -> writeWithAddresses(existing, patch.fields(), patch.addresses(), eventId)));
+        } else if (patch.fields().isEmpty()) {
+            write = loadForUpdate(id, expectedVersion);
+        } else {
+            write = idAllocator.next(OUTBOX).flatMap(eventId -> transactionalOperator.transactional(
+                    updateAccount(id, patch.fields(), expectedVersion).then(recordUpdated(eventId, id))));
+        }
+        return Mono.fromCallable(() -> patch.validate(validator))
+                .flatMap(violations -> violations.isEmpty()
+                        ? write
+                        : Mono.error(new AccountsValidationException(violations)));
+    }
+
+    private Mono<Accounts> loadForUpdate(final Long id, final Long expectedVersion) {
+        return findById(id)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Account not updated for ID -> " + id)))
+                .flatMap(existing -> expectedVersion == null || expectedVersion.equals(existing.getVersion())
+                        ? Mono.just(existing)
+                        : Mono.error(new OptimisticLockingFailureException("Account " + id + " is not at version " + expectedVersion)));
+    }
+
+    // the account UPDATE is guarded by the version that was read, a concurrent writer in between is a conflict
+    private Mono<Accounts> writeWithAddresses(final Accounts existing, final Map<String, String> fields,
+                                              final Collection<Address> addresses, final Long eventId) {
+        AddressChanges changes = AddressChanges.merge(existing.getAddresses(), addresses);
+        Long id = existing.getId();
+        return assignAddressIds(changes.added())
+                .then(transactionalOperator.transactional(updateAccount(id, fields, existing.getVersion())
+                        .then(updateAddresses(changes.changed()))
+                        .then(deleteAddresses(id, changes.removed()))
+                        .then(insertAddresses(id, changes.added()))
+                        .then(recordUpdated(eventId, id))));
+    }
+
+    // an unknown id deletes nothing and records no event, like AccountsHandler.delete
+    @Override
+    public Mono<Void> delete(final Long id) {
+        log.debug("delete: id -> {}", id);
+        return idAllocator.next(OUTBOX)
+                .flatMap(eventId -> transactionalOperator.transactional(findById(id)
+                        .flatMap(account -> deleteAddresses(id)
+                                .then(databaseClient.sql("DELETE FROM accounts WHERE id = :id").bind("id", id).then())
+                                .then(insertEvent(eventId, AccountsChangeEvent.Type.DELETED, account)))));
+    }
+
+    @Override
+    public Mono<Accounts> findById(final Long id) {
+        log.debug("findById: id -> {}", id);
+        return accounts(databaseClient.sql(SELECT_ACCOUNTS + "accounts a" + JOIN_ADDRESSES + "WHERE a.id = :id" + ORDER)
+                .bind("id", id))
+                .next();
+    }
+
+    @Override
+    public Mono<Accounts> findByAccountIdRef(final UUID id) {
+        log.debug("findByAccountIdRef: id -> {}", id);
+        return accounts(databaseClient.sql(SELECT_ACCOUNTS + "accounts a" + JOIN_ADDRESSES + "WHERE a.account_ref_id = :ref" + ORDER)
+                .bind("ref", toBytes(id)))
+                .next();
+    }
+
+    // NOTES: one join for all requested ids and refs, folded like findAll. An empty side is left out of the WHERE
+    // clause rather than bound as an empty IN list.
+    @Override
+    public Mono<AccountsLookup> lookup(final Collection<Long> ids, final Collection<UUID> refs) {
+        log.debug("lookup: ids -> {}, refs -> {}", ids.size(), refs.size());
+        if (ids.isEmpty() && refs.isEmpty()) return Mono.just(AccountsLookup.of(ids, refs, List.of()));
+
+        String where = refs.isEmpty() ? "a.id IN (:ids)"
+                : ids.isEmpty() ? "a.account_ref_id IN (:refs)"
+                : "a.id IN (:ids) OR a.account_ref_id IN (:refs)";
+        DatabaseClient.GenericExecuteSpec select = databaseClient.sql(SELECT_ACCOUNTS + "accounts a" + JOIN_ADDRESSES
+                + "WHERE " + where + ORDER);
+        if (!ids.isEmpty()) select = select.bind("ids", ids);
+        if (!refs.isEmpty()) select = select.bind("refs", refs.stream().map(ReactiveAccountsHandler::toBytes).toList());
+        return accounts(select)
+                .collectList()
+                .map(accounts -> AccountsLookup.of(ids, refs, accounts));
+    }
+
+    @Override
+    public Mono<AccountsVersion> findVersion(final Long id) {
+        log.debug("findVersion: id -> {}", id);
+        return version(databaseClient.sql("SELECT version, updated_dt FROM accounts WHERE id = :id").bind("id", id));
+    }
+
+    @Override
+    public Mono<AccountsVersion> findVersionByAccountIdRef(final UUID id) {
+        log.debug("findVersionByAccountIdRef: id -> {}", id);
+        return version(databaseClient.sql("SELECT version, updated_dt FROM accounts WHERE account_ref_id = :ref")
+                .bind("ref", toBytes(id)));
+    }
+
+    @Override
+    public Mono<CursorPage<Accounts>> findAll(final Long after, final int limit) {
+        log.debug("findAll: after -> {}, limit -> {}", after, limit);
+        // NOTES: the page is cut on accounts (derived table), not on joined rows, one extra account tells us
+        // whether a next page exists
+        return accounts(databaseClient.sql(SELECT_ACCOUNTS
+                        + "(SELECT * FROM accounts WHERE id > :after ORDER BY id LIMIT :limit) a" + JOIN_ADDRESSES + ORDER)
+                .bind("after", after == null ? 0L : after)
+                .bind("limit", limit + 1))
+                .collectList()
+                .map(accounts -> {
+                    if (accounts.size() <= limit) {
+                        return new CursorPage<>(accounts, null);
+                    }
+                    List<Accounts> page = accounts.subList(0, limit);
+                    return new CursorPage<>(page, page.get(limit - 1).getId());
+                });
+    }
+
+    @Override
+    public Flux<Accounts> streamAll() {
+        log.debug("streamAll");
+        return accounts(databaseClient.sql(SELECT_ACCOUNTS + "accounts a" + JOIN_ADDRESSES + ORDER));
+    }
+
+    @Override
+    public Flux<Address> findAllAddressesForAccount(final Long id) {
+        log.debug("findAll Addresses for Account id -> {}", id);
+        return databaseClient.sql("SELECT ad.id AS address_id, ad.street_address, ad.second_address, ad.city, ad.state, "
+                        + "ad.province, ad.postal_code, ad.country FROM accounts_addresses aa "
+                        + "JOIN address ad ON ad.id = aa.addresses_id WHERE aa.accounts_id = :id ORDER BY ad.id")
+                .bind("id", id)
+                .map((row, metadata) -> toAddress(row))
+                .all();
+    }
+
+    private Mono<Boolean> exists(final Long id) {
+        return databaseClient.sql("SELECT 1 FROM accounts WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    private Mono<Void> assertValid(final Accounts account, final Class<?>... groups) {
+        return Mono.fromRunnable(() -> {
+            Set<ConstraintViolation<Accounts>> violations = validator.validate(account, groups);
+            if (!violations.isEmpty()) {
+                throw new AccountsValidationException(violations);
+            }
+        });
+    }
+
+    private static Map<String, String> fields(final Accounts model) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("firstName", model.getFirstName());
+        fields.put("lastName", model.getLastName());
+        fields.put("emailAddress", model.getEmailAddress());
+        return fields;
+    }
+
+    private Mono<Void> assignAddressIds(final Collection<Address> addresses) {
+        if (addresses == null || addresses.isEmpty()) return Mono.empty();
+        return Flux.fromIterable(addresses)
+                .concatMap(address -> idAllocator.next("address").doOnNext(address::setId))
+                .then();
+    }
+
+    private Mono<Void> insertAccount(final Accounts account) {
+        return databaseClient.sql("INSERT INTO accounts (id, account_ref_id, first_name, last_name, email_address, "
+                        + "created_dt, updated_dt) VALUES (:id, :ref, :firstName, :lastName, :emailAddress, :created, :updated)")
+                .bind("id", account.getId())
+                .bind("ref", toBytes(account.getAccountRefId()))
+                .bind("firstName", account.getFirstName())
+                .bind("lastName", account.getLastName())
+                .bind("emailAddress", account.getEmailAddress())
+                .bind("created", toDateTime(account.getCreateDateTime()))
+                .bind("updated", toDateTime(account.getUpdateDateTime()))
+                .then();
+    }
+
+    // the account as the update left it, read inside the write transaction so the event carries the committed state
+    private Mono<Accounts> recordUpdated(final Long eventId, final Long id) {
+        return findById(id)
+                .flatMap(account -> insertEvent(eventId, AccountsChangeEvent.Type.UPDATED, account).thenReturn(account));
+    }
+
+    // same row as AccountsOutbox.record, feed_sequence stays null until AccountsOutboxRelay publishes it
+    private Mono<Void> insertEvent(final Long eventId, final AccountsChangeEvent.Type type, final Accounts account) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO accounts_outbox (id, type, account_id, "
+                        + "account_ref_id, version, created_dt, payload) VALUES (:id, :type, :accountId, :ref, :version, "
+                        + ":created, :payload)")
+                .bind("id", eventId)
+                .bind("type", type.name())
+                .bind("accountId", account.getId())
+                .bind("ref", toBytes(account.getAccountRefId()))
+                .bind("created", toDateTime(Instant.now()));
+        Long version = AccountsChangeEvent.versionOf(type, account.getVersion());
+        insert = version == null ? insert.bindNull("version", Long.class) : insert.bind("version", version);
+        return bind(insert, "payload", type == AccountsChangeEvent.Type.DELETED ? null : toJson(account)).then();
+    }
+
+    private String toJson(final Accounts account) {
+        try {
+            return objectMapper.writeValueAsString(account);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Account " + account.getId() + " could not be serialized for the outbox", e);
+        }
+    }
+
+    // fields are Accounts property names (AccountsPatch.FIELDS), each one is a column in the SET list
+    private Mono<Void> updateAccount(final Long id, final Map<String, String> fields, final Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE accounts SET ");
+        fields.keySet().forEach(name -> sql.append(COLUMNS.get(name)).append(" = :").append(name).append(", "));
+        sql.append("updated_dt = :updated, version = version + 1 WHERE id = :id");
+        if (expectedVersion != null) sql.append(" AND version = :version");
+
+        DatabaseClient.GenericExecuteSpec update = databaseClient.sql(sql.toString())
+                .bind("updated", toDateTime(Instant.now()))
+                .bind("id", id);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            update = bind(update, field.getKey(), field.getValue());
+        }
+        if (expectedVersion != null) update = update.bind("version", expectedVersion);
+        return update.fetch()
+                .rowsUpdated()
+                .flatMap(updated -> updated > 0 ? Mono.<Void>empty() : exists(id).flatMap(exists -> Mono.error(exists
+                        ? new OptimisticLockingFailureException("Account " + id + " is not at version " + expectedVersion)
+                        : new EntityNotFoundException("Account not updated for ID -> " + id))));
+    }
+
+    private Mono<Void> updateAddresses(final Collection<Address> addresses) {
+        return Flux.fromIterable(addresses)
+                .concatMap(address -> {
+                    DatabaseClient.GenericExecuteSpec update = databaseClient.sql("UPDATE address SET street_address = :address1, "
+                                    + "second_address = :address2, city = :city, state = :state, province = :province, "
+                                    + "postal_code = :postalCode, country = :country WHERE id = :id")
+                            .bind("id", address.getId());
+                    return bindAddress(update, address).then();
+                })
+                .then();
+    }
+
+    private Mono<Void> deleteAddresses(final Long accountId, final Collection<Address> addresses) {
+        if (addresses.isEmpty()) return Mono.empty();
+        List<Long> addressIds = addresses.stream().map(Address::getId).toList();
+        return databaseClient.sql("DELETE FROM accounts_addresses WHERE accounts_id = :id AND addresses_id IN (:ids)")
+                .bind("id", accountId)
+                .bind("ids", addressIds)
+                .then()
+                .then(databaseClient.sql("DELETE FROM address WHERE id IN (:ids)")
+                        .bind("ids", addressIds)
+                        .then());
+    }
+
+    private Mono<Void> insertAddresses(final Long accountId, final Collection<Address> addresses) {
+        if (addresses == null || addresses.isEmpty()) return Mono.empty();
+        return Flux.fromIterable(addresses)
+                .concatMap(address -> {
+                    DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO address (id, street_address, "
+                                    + "second_address, city, state, province, postal_code, country) VALUES (:id, :address1, "
+                                    + ":address2, :city, :state, :province, :postalCode, :country)")
+                            .bind("id", address.getId());
+                    return bindAddress(insert, address).then()
+                            .then(databaseClient.sql("INSERT INTO accounts_addresses (accounts_id, addresses_id) "
+                                            + "VALUES (:accountId, :addressId)")
+                                    .bind("accountId", accountId)
+                                    .bind("addressId", address.getId())
+                                    .then());
+                })
+                .then();
+    }
+
+    private Mono<Void> deleteAddresses(final Long accountId) {
+        return databaseClient.sql("SELECT addresses_id FROM accounts_addresses WHERE accounts_id = :id")
+                .bind("id", accountId)
+                .map((row, metadata) -> row.get("addresses_id", Long.class))
+                .all()
+                .collectList()
+                .flatMap(addressIds -> {
+                    if (addressIds.isEmpty()) return Mono.empty();
+                    return databaseClient.sql("DELETE FROM accounts_addresses WHERE accounts_id = :id")
+                            .bind("id", accountId)
+                            .then()
+                            .then(databaseClient.sql("DELETE FROM address WHERE id IN (:ids)")
+                                    .bind("ids", addressIds)
+                                    .then());
+                });
+    }
+
+    private Mono<AccountsVersion> version(final DatabaseClient.GenericExecuteSpec select) {
+        return select.map((row, metadata) -> new AccountsVersion(row.get("version", Long.class),
+                        toInstant(row.get("updated_dt", LocalDateTime.class))))
+                .first();
+    }
+
+    private Flux<Accounts> accounts(final DatabaseClient.GenericExecuteSpec select) {
+        return select.map((row, metadata) -> new JoinedRow(toAccounts(row), toAddressOrNull(row)))
+                .all()
+                .bufferUntilChanged(joined -> joined.account().getId())
+                .map(rows -> {
+                    Accounts account = rows.get(0).account();
+                    Set<Address> addresses = new LinkedHashSet<>();
+                    for (JoinedRow joined : rows) {
+                        if (joined.address() != null) addresses.add(joined.address());
+                    }
+                    account.setAddresses(addresses);
+                    return account;
+                });
+    }
+
+    private static Accounts toAccounts(final Row row) {
+        return Accounts.builder()
+                .id(row.get("id", Long.class))
+                .accountRefId(toUuid(row.get("account_ref_id", byte[].class)))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .emailAddress(row.get("email_address", String.class))
+                .createDateTime(toInstant(row.get("created_dt", LocalDateTime.class)))
+                .updateDateTime(toInstant(row.get("updated_dt", LocalDateTime.class)))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+
+    private static Address toAddressOrNull(final Row row) {
+        return row.get("address_id", Long.class) == null ? null : toAddress(row);
+    }
+
+    private static Address toAddress(final Row row) {
+        return Address.builder()
+                .id(row.get("address_id", Long.class))
+                .address1(row.get("street_address", String.class))
+                .address2(row.get("second_address", String.class))
+                .city(row.get("city", String.class))
+                .state(row.get("state", String.class))
+                .province(row.get("province", String.class))
+                .postalCode(row.get("postal_code", String.class))
+                .country(row.get("country", String.class))
+                .build();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAddress(final DatabaseClient.GenericExecuteSpec spec,
+                                                                 final Address address) {
+        DatabaseClient.GenericExecuteSpec bound = bind(spec, "address1", address.getAddress1());
+        bound = bind(bound, "address2", address.getAddress2());
+        bound = bind(bound, "city", address.getCity());
+        bound = bind(bound, "state", address.getState());
+        bound = bind(bound, "province", address.getProvince());
+        bound = bind(bound, "postalCode", address.getPostalCode());
+        return bind(bound, "country", address.getCountry());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(final DatabaseClient.GenericExecuteSpec spec,
+                                                          final String name, final String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    // binary(16), most significant bits first, the layout Hibernate uses for UUID on MySQL
+    static byte[] toBytes(final UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID toUuid(final byte[] bytes) {
+        if (bytes == null) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static LocalDateTime toDateTime(final Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(final LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toInstant(ZoneOffset.UTC);
+    }
+
+    private record JoinedRow(Accounts account, Address address) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAccountsUseCase {
+
+    Mono<ResponseEntity<Accounts>> patch(final Long id, final JsonNode patch, final String ifMatch);
+
+    Mono<ResponseEntity<Flux<Address>>> findAllAddressesForAccount(final Long id, final ServerWebExchange exchange);
+
+    Flux<Accounts> streamAll();
+
+    Mono<ResponseEntity<AccountsLookup>> lookup(final AccountsLookup.Request request);
+}
@@ -0,0 +1,19 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+public interface ReactiveCrudUseCase<T> {
+
+    Mono<ResponseEntity<T>> create(final T model);
+    Mono<ResponseEntity<T>> update(final Long id, final T model, final String ifMatch);
+    Mono<Void> delete(final Long id);
+    Mono<ResponseEntity<T>> findById(final Long id, final ServerWebExchange exchange);
+
+    Mono<ResponseEntity<Accounts>> findByAccountIdRef(final UUID id, final ServerWebExchange exchange);
+    Mono<ResponseEntity<CursorPage<T>>> findAll(final Long after, final Integer limit);
+
+}
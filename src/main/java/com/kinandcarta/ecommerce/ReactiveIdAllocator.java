@@ -0,0 +1,90 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// NOTES: same id_generator rows and pooled-lo semantics as the JPA @TableGenerator on Accounts/Address, so
+// both stacks can write to one database: reading next_val = v reserves v .. v + ALLOCATION_SIZE - 1.
+// The reservation is a compare-and-set UPDATE outside the caller's transaction, it never holds the row lock
+// for the length of an insert. Ids handed out from a block are in memory, no query per id.
+@Component
+@Profile("reactive")
+public class ReactiveIdAllocator {
+    static final int ALLOCATION_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final DatabaseClient databaseClient;
+    private final Map<String, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+
+    public ReactiveIdAllocator(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Long> next(final String sequence) {
+        AtomicReference<Block> current = blocks.computeIfAbsent(sequence, key -> new AtomicReference<>(Block.EMPTY));
+        return Mono.defer(() -> {
+            long id = current.get().take();
+            if (id >= 0) return Mono.just(id);
+            return reserve(sequence).map(block -> {
+                long first = block.take();
+                current.set(block);
+                return first;
+            });
+        });
+    }
+
+    private Mono<Block> reserve(final String sequence) {
+        return Mono.defer(() -> databaseClient.sql("SELECT next_val FROM id_generator WHERE sequence_name = :name")
+                        .bind("name", sequence)
+                        .map((row, metadata) -> row.get("next_val", Long.class))
+                        .one()
+                        .flatMap(value -> databaseClient.sql("UPDATE id_generator SET next_val = :next "
+                                        + "WHERE sequence_name = :name AND next_val = :value")
+                                .bind("next", value + ALLOCATION_SIZE)
+                                .bind("name", sequence)
+                                .bind("value", value)
+                                .fetch().rowsUpdated()
+                                .flatMap(updated -> updated == 1 ? Mono.just(new Block(value)) : Mono.<Block>empty()))
+                        .switchIfEmpty(initialise(sequence)))
+                .repeatWhenEmpty(MAX_ATTEMPTS, attempts -> attempts)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Could not reserve ids for " + sequence)));
+    }
+
+    // First use on an empty id_generator table, Hibernate starts pooled-lo sequences at 1.
+    private Mono<Block> initialise(final String sequence) {
+        return databaseClient.sql("INSERT INTO id_generator (sequence_name, next_val) VALUES (:name, 1)")
+                .bind("name", sequence)
+                .fetch().rowsUpdated()
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.empty())
+                .then(Mono.empty());
+    }
+
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(final long first) {
+            this(first, first + ALLOCATION_SIZE);
+        }
+
+        private Block(final long first, final long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+
+        long take() {
+            long id = next.getAndIncrement();
+            return id < limit ? id : -1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.kinandcarta.ecommerce;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// NOTES: non-blocking counterpart of ServiceHandler, an empty Mono means not found.
+public interface ReactiveServiceHandler {
+    Mono<Accounts> create(final Accounts model);
+    Mono<Accounts> update(final Long id, final Accounts model);
+    Mono<Accounts> update(final Long id, final Accounts model, final Long expectedVersion);
+    Mono<Accounts> patch(final Long id, final AccountsPatch patch, final Long expectedVersion);
+
+    Mono<Void> delete(final Long id);
+    Mono<Accounts> findById(final Long id);
+
+    Mono<Accounts> findByAccountIdRef(final UUID id);
+    Mono<AccountsVersion> findVersion(final Long id);
+    Mono<AccountsVersion> findVersionByAccountIdRef(final UUID id);
+    Mono<AccountsLookup> lookup(final Collection<Long> ids, final Collection<UUID> refs);
+    Mono<CursorPage<Accounts>> findAll(final Long after, final int limit);
+    Flux<Accounts> streamAll();
+
+    Flux<Address> findAllAddressesForAccount(final Long id);
+}
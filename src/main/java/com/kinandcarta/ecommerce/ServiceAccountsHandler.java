@@ -1,7 +1,8 @@
 package com.kinandcarta.ecommerce;
 
-import java.util.Set;
+import java.util.List;
+import java.util.Optional;
 
 public interface ServiceAccountsHandler {
-    Set<Address> findAllAddressesForAccount(final Long id);
+    Optional<List<Address>> findAllAddressesForAccount(final Long id);
 }
@@ -1,15 +1,25 @@
 package com.kinandcarta.ecommerce;
 
-import java.util.Set;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ServiceHandler extends ServiceAccountsHandler {
     Accounts create(final Accounts model);
     Accounts update(final Long id, final Accounts model);
+    Accounts update(final Long id, final Accounts model, final Long expectedVersion);
+    Accounts patch(final Long id, final AccountsPatch patch, final Long expectedVersion);
 
     void delete(final Long id);
-    Accounts findById(final Long id);
+    Optional<Accounts> findById(final Long id);
 
-    Accounts findByAccountIdRef(final String id);
-    Set<Accounts> findAll();
-    
+    Optional<Accounts> findByAccountIdRef(final UUID id);
+    Optional<Accounts> findByEmailAddress(final String emailAddress);
+    Optional<AccountsVersion> findVersion(final Long id);
+    Optional<AccountsVersion> findVersionByAccountIdRef(final UUID id);
+    AccountsLookup lookup(final Collection<Long> ids, final Collection<UUID> refs);
+    CursorPage<Accounts> findAll(final Long after, final int limit);
+    CursorPage<Accounts> search(final AccountsSearch search, final Long after, final int limit);
+    void streamAll(final Consumer<Accounts> consumer);
 }
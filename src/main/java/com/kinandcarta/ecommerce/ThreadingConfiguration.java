@@ -0,0 +1,55 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+// NOTES: accounts.threads.virtual=true runs Tomcat request handling, MVC async work (StreamingResponseBody)
+// and @Async methods on virtual threads instead of the 200 thread platform pool. Requests then queue on the
+// database instead of on Tomcat. In both modes the DataSource is wrapped in a fair semaphore with fewer permits than
+// the Hikari pool has connections, the rest are kept for id block fetches (ConcurrencyLimitedDataSource).
+@Configuration(proxyBeanMethods = false)
+@EnableAsync
+public class ThreadingConfiguration {
+    @Bean
+    static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            @Value("${accounts.db.limiter.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${accounts.db.limiter.acquire-timeout:5s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "accounts.threads.virtual", havingValue = "true")
+    static class VirtualThreads {
+        @Bean
+        TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+            return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+
+        @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+                AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+        AsyncTaskExecutor applicationTaskExecutor() {
+            return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.kinandcarta.ecommerce;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// NOTES: version 7 UUIDs (RFC 9562), 48 bit unix millisecond timestamp followed by 74 random bits.
+// New references sort after older ones so inserts append to the right of the account_ref_id index, and the
+// random bits come from ThreadLocalRandom, so concurrent signups never contend on a shared SecureRandom.
+// References are identifiers, not secrets, use the random generator if they must be unguessable.
+@Component
+@ConditionalOnProperty(name = "accounts.ref-id.generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedAccountRefIdGenerator implements AccountRefIdGenerator {
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC = 0x8000_0000_0000_0000L;
+
+    @Override
+    public UUID next() {
+        return next(System.currentTimeMillis());
+    }
+
+    UUID next(final long epochMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (epochMillis << 16) | VERSION_7 | (random.nextLong() & 0x0FFFL);
+        long leastSignificantBits = VARIANT_RFC | (random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -0,0 +1,17 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.validation.ConstraintViolation;
+
+import java.util.List;
+import java.util.Set;
+
+public record ValidationErrorResponse(int status, List<Violation> violations) {
+    public record Violation(String field, String message) {
+    }
+
+    public static ValidationErrorResponse of(final Set<? extends ConstraintViolation<?>> violations) {
+        return new ValidationErrorResponse(400, violations.stream()
+                .map(violation -> new Violation(violation.getPropertyPath().toString(), violation.getMessage()))
+                .toList());
+    }
+}
@@ -0,0 +1,116 @@
+package com.kinandcarta.ecommerce;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.KeyValuePair;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountsAccessLogTest {
+    final Logger logger = (Logger) LoggerFactory.getLogger("accounts.access");
+    final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    MockHttpServletRequest request;
+    MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        events.start();
+        logger.addAppender(events);
+        request = new MockHttpServletRequest("GET", "/accounts/7");
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(events);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test void should_LogEndpointIdStatusAndRows_asKeyValues() throws ServletException, IOException {
+        new AccountsAccessLog(1.0).doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(final jakarta.servlet.ServletRequest req, final jakarta.servlet.ServletResponse res) {
+                // what the DispatcherServlet and the controller leave on the request
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/accounts/{id}");
+                req.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", "7"));
+                RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+                AccountsAccessLog.rows(1);
+            }
+        });
+
+        assertThat(events.list).hasSize(1);
+        Map<String, Object> keyValues = keyValues(events.list.get(0));
+        assertThat(keyValues).containsEntry("method", "GET")
+                .containsEntry("endpoint", "/accounts/{id}")
+                .containsEntry("id", "7")
+                .containsEntry("status", 200)
+                .containsEntry("rows", 1L)
+                .containsKeys("outcome", "latencyMicros");
+        assertThat(keyValues.get("outcome")).hasToString("SUCCESS");
+    }
+
+    @Test void should_SkipUnsampledRequests_butAlwaysLogServerErrors() throws ServletException, IOException {
+        AccountsAccessLog accessLog = new AccountsAccessLog(0.0);
+        accessLog.doFilter(request, response, new MockFilterChain());
+        assertThat(events.list).isEmpty();
+
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        failed.setStatus(503);
+        accessLog.doFilter(new MockHttpServletRequest("GET", "/accounts"), failed, new MockFilterChain());
+        assertThat(events.list).hasSize(1);
+        assertThat(keyValues(events.list.get(0))).containsEntry("endpoint", "/accounts").containsEntry("status", 503)
+                .doesNotContainKeys("id", "rows");
+    }
+
+    @Test void should_LogAsServerError_whenTheChainThrows() {
+        assertThatThrownBy(() -> new AccountsAccessLog(0.0).doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(final jakarta.servlet.ServletRequest req, final jakarta.servlet.ServletResponse res) {
+                throw new IllegalStateException("boom");
+            }
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(events.list).hasSize(1);
+        assertThat(keyValues(events.list.get(0))).containsEntry("status", 500);
+    }
+
+    @Test void should_LogStreamedRequests_onAsyncCompletion() throws ServletException, IOException {
+        request.setAsyncSupported(true);
+        new AccountsAccessLog(1.0).doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(final jakarta.servlet.ServletRequest req, final jakarta.servlet.ServletResponse res) {
+                req.startAsync();
+            }
+        });
+        assertThat(events.list).isEmpty();
+
+        request.setAttribute(AccountsAccessLog.ROWS, 42L);
+        request.getAsyncContext().complete();
+        assertThat(events.list).hasSize(1);
+        assertThat(keyValues(events.list.get(0))).containsEntry("rows", 42L);
+    }
+
+    private static Map<String, Object> keyValues(final ILoggingEvent event) {
+        Map<String, Object> keyValues = new LinkedHashMap<>();
+        for (KeyValuePair pair : event.getKeyValuePairs()) keyValues.put(pair.key, pair.value);
+        return keyValues;
+    }
+}
@@ -0,0 +1,132 @@
+package com.kinandcarta.ecommerce;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@AutoConfigureJson
+@ActiveProfiles("test")
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({AccountsHandler.class, AccountsCache.class, AccountsOutbox.class, EmailAddressFilter.class, AccountsBulkImporter.class,
+        TimeOrderedAccountRefIdGenerator.class})
+@TestPropertySource(properties = "accounts.bulk.batch-size=20")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountsBulkImporterTest {
+    @Autowired
+    AccountsBulkImporter importer;
+
+    @Autowired
+    AccountsRepository accountsRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach void tearDown() {
+        accountsRepository.deleteAll();
+    }
+
+    @Test void shouldImportJsonArray_inBatches() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) json.append(',');
+            json.append(account("bulk" + i + "@duke.com"));
+        }
+        json.append(']');
+
+        BulkImportReport report = importer.importAccounts(stream(json.toString()));
+
+        assertThat(report.received()).isEqualTo(100);
+        assertThat(report.created()).isEqualTo(100);
+        assertThat(report.results()).allSatisfy(result -> {
+            assertThat(result.status()).isEqualTo(BulkImportReport.Status.CREATED);
+            assertThat(result.id()).isNotNull();
+            assertThat(result.accountRefId()).isNotNull();
+        });
+        assertThat(accountsRepository.count()).isEqualTo(100);
+        // 100 accounts, 100 addresses and their 100 outbox events
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(300);
+        // plus 100 join rows, 5 chunks of 4 batched statements plus id blocks
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(50);
+    }
+
+    @Test void shouldReportInvalidAndDuplicateRecords_fromNdjson() {
+        String ndjson = account("first@duke.com") + "\n"
+                + "{\"firstName\":\"D\",\"lastName\":\"DukeLastName\",\"emailAddress\":\"nope\"}\n"
+                + account("first@duke.com") + "\n"
+                + account("second@duke.com") + "\n";
+
+        BulkImportReport report = importer.importAccounts(stream(ndjson));
+
+        assertThat(report.received()).isEqualTo(4);
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.rejected()).isEqualTo(2);
+        assertThat(report.results()).extracting(BulkImportReport.Result::status).containsExactly(
+                BulkImportReport.Status.CREATED,
+                BulkImportReport.Status.INVALID,
+                BulkImportReport.Status.FAILED,
+                BulkImportReport.Status.CREATED);
+        assertThat(report.results().get(1).errors()).extracting(ValidationErrorResponse.Violation::field)
+                .containsExactlyInAnyOrder("firstName", "emailAddress");
+        assertThat(accountsRepository.count()).isEqualTo(2);
+    }
+
+    @Test void shouldStopAndKeepCommittedRecords_whenJsonIsMalformed() {
+        BulkImportReport report = importer.importAccounts(stream(account("ok@duke.com") + "\n{\"firstName\": \n"));
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.results()).extracting(BulkImportReport.Result::status)
+                .containsExactly(BulkImportReport.Status.CREATED, BulkImportReport.Status.FAILED);
+        assertThat(accountsRepository.count()).isEqualTo(1);
+    }
+
+    @Test void shouldNotCommitThePendingChunk_whenTheImportFailsOtherwise() {
+        InputStream failing = new InputStream() {
+            @Override public int read() {
+                throw new IllegalStateException("request aborted");
+            }
+        };
+
+        assertThatThrownBy(() -> importer.importAccounts(new SequenceInputStream(stream(account("pending@duke.com") + "\n"), failing)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(accountsRepository.count()).isZero();
+    }
+
+    private String account(final String email) {
+        return "{\"id\":99,\"firstName\":\"Duke\",\"lastName\":\"Bulk\",\"emailAddress\":\"" + email + "\","
+                + "\"addresses\":[{\"id\":7,\"address1\":\"100 Noworries Avenue\",\"city\":\"Food Forest City\","
+                + "\"state\":\"FL\",\"postalCode\":\"33000\",\"country\":\"US\"}]}";
+    }
+
+    private InputStream stream(final String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountsCacheTest {
+    final UUID expectedAccountIdRef = UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67");
+
+    AccountsCache cache = new AccountsCache(100, Duration.ofMinutes(1));
+
+    Accounts account = Accounts.builder()
+            .id(1L)
+            .accountRefId(expectedAccountIdRef)
+            .firstName("Minimal")
+            .lastName("CreateAccount")
+            .emailAddress("dukefirst.last@enjoy.com").build();
+
+    @Test
+    void shouldLoadOnce_whenHotKeyIsStampeded() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Optional<Accounts>>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.findByAccountRefId(expectedAccountIdRef, ref -> {
+                        loads.incrementAndGet();
+                        sleep();
+                        return Optional.of(account);
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Accounts>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(account);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cache.byRefStats().missCount()).isEqualTo(1);
+        assertThat(cache.byRefStats().hitCount()).isEqualTo(15);
+    }
+
+    @Test
+    void shouldIndexByIdAndRef_fromEitherLoad() {
+        cache.findByAccountRefId(expectedAccountIdRef, ref -> Optional.of(account));
+        assertThat(cache.findById(1L, id -> Optional.empty())).containsSame(account);
+        assertThat(cache.byIdStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheMisses() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.findById(2L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+        cache.findById(2L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldEvictBothIndexes() {
+        cache.findById(1L, id -> Optional.of(account));
+        cache.evict(1L, expectedAccountIdRef);
+        AtomicInteger loads = new AtomicInteger();
+        cache.findByAccountRefId(expectedAccountIdRef, ref -> { loads.incrementAndGet(); return Optional.of(account); });
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldEvictTheRefIndex_withoutAnIdEntry() {
+        // cached under the reference only, as while its load has not reached accountsById yet
+        cache.findByAccountRefId(expectedAccountIdRef, ref -> Optional.of(Accounts.builder()
+                .accountRefId(expectedAccountIdRef).firstName("Minimal").lastName("CreateAccount")
+                .emailAddress("dukefirst.last@enjoy.com").build()));
+        cache.evict(1L, expectedAccountIdRef);
+        AtomicInteger loads = new AtomicInteger();
+        cache.findByAccountRefId(expectedAccountIdRef, ref -> { loads.incrementAndGet(); return Optional.of(account); });
+        assertThat(loads).hasValue(1);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(100);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
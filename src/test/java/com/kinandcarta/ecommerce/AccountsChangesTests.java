@@ -0,0 +1,172 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AccountsChangesTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    AccountsHandler accountsHandler;
+
+    @Autowired
+    AccountsOutboxRepository outboxRepository;
+
+    @Autowired
+    AccountsOutboxRelay relay;
+
+    @Autowired
+    LocalAccountsChangeSink sink;
+
+    long since;
+
+    @BeforeEach void setUp() {
+        relay.relay();
+        since = sink.lastSequence();
+    }
+
+    @Test void shouldRelayCommittedChanges_inOrder() throws Exception {
+        Accounts created = accountsHandler.create(account("changes@duke.com"));
+        Accounts changed = account("changed@duke.com");
+        changed.setAddresses(null);
+        accountsHandler.update(created.getId(), changed);
+        accountsHandler.delete(created.getId());
+
+        assertThat(outboxRepository.countBySequenceIsNull()).isEqualTo(3);
+        assertThat(relay.relay()).isEqualTo(3);
+        assertThat(outboxRepository.countBySequenceIsNull()).isZero();
+
+        MvcResult changes = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/changes").param("since", String.valueOf(since))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(changes))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].type").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].version").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].account.emailAddress").value("changes@duke.com"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].type").value("UPDATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].version").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[1].account.emailAddress").value("changed@duke.com"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[2].type").value("DELETED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[2].version").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[2].account").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(since + 3));
+    }
+
+    @Test void shouldKeepTheDelete_forAConsumerThatDropsEventsNotNewerThanItsVersion() {
+        Accounts created = accountsHandler.create(account("dedupe@duke.com"));
+        Accounts changed = account("deduped@duke.com");
+        changed.setAddresses(null);
+        accountsHandler.update(created.getId(), changed);
+        accountsHandler.delete(created.getId());
+        relay.relay();
+
+        // the events delivered twice, as at-least-once delivery may
+        List<AccountsChangeEvent> events = sink.changesSince(since, 100).events();
+        Map<Long, AccountsChangeEvent> held = new HashMap<>();
+        Stream.concat(events.stream(), events.stream()).forEach(event -> held.merge(event.accountId(), event,
+                (current, next) -> next.version() > current.version() ? next : current));
+        assertThat(held.get(created.getId())).extracting(AccountsChangeEvent::type, AccountsChangeEvent::version)
+                .containsExactly(AccountsChangeEvent.Type.DELETED, 2L);
+    }
+
+    @Test void shouldNotRecordChanges_thatRolledBack() {
+        Accounts created = accountsHandler.create(account("rollback@duke.com"));
+        relay.relay();
+        Accounts duplicate = account("rollback@duke.com");
+
+        try {
+            accountsHandler.create(duplicate);
+        } catch (final RuntimeException expected) {
+            // unique email
+        }
+
+        assertThat(outboxRepository.countBySequenceIsNull()).isZero();
+        accountsHandler.delete(created.getId());
+    }
+
+    @Test void shouldAnswerAHeldLongPoll_withTheRelayedEvents() throws Exception {
+        MvcResult waiting = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/changes")
+                        .param("since", String.valueOf(since)).param("wait", "10"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        assertThat(waiting.getResponse().getContentLength()).isZero();
+
+        Accounts created = accountsHandler.create(account("longpoll@duke.com"));
+        relay.relay();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(waiting))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.events[0].accountId").value(created.getId()));
+        accountsHandler.delete(created.getId());
+    }
+
+    @Test void shouldKeepRelayedEvents_untilTheyAreOlderThanTheRetention() throws Exception {
+        Accounts created = accountsHandler.create(account("retained@duke.com"));
+        relay.relay();
+        assertThat(relay.prune()).isZero();
+        assertThat(sink.changesSince(since, 10).events()).extracting(AccountsChangeEvent::accountId).containsExactly(created.getId());
+
+        AccountsOutboxEvent event = outboxRepository.findBySequenceGreaterThanOrderBySequenceAsc(since, PageRequest.of(0, 10)).get(0);
+        event.setCreateDateTime(Instant.now().minus(Duration.ofDays(2)));
+        outboxRepository.save(event);
+        // every relayed event up to this one goes, the feed is pruned from its start
+        assertThat(relay.prune()).isPositive();
+
+        assertThat(sink.changesSince(since + 1, 10).events()).isEmpty();
+        MvcResult gone = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/changes").param("since", String.valueOf(since)))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(gone))
+                .andExpect(MockMvcResultMatchers.status().isGone())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(since + 1));
+        accountsHandler.delete(created.getId());
+    }
+
+    @Test void shouldAnswerGone_forASequenceNotHandedOutYet() throws Exception {
+        MvcResult gone = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/changes").param("since", String.valueOf(since + 1000)))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(gone)).andExpect(MockMvcResultMatchers.status().isGone());
+    }
+
+    private static Accounts account(final String email) {
+        return Accounts.builder()
+                .accountRefId(UUID.randomUUID())
+                .firstName("Duke")
+                .lastName("Changes")
+                .emailAddress(email)
+                .addresses(Set.of(Address.builder()
+                        .address1("1 Outbox Lane")
+                        .city("Food Forest City")
+                        .state("FL")
+                        .postalCode("33000")
+                        .country("US").build()))
+                .build();
+    }
+}
@@ -1,24 +1,44 @@
 package com.kinandcarta.ecommerce;
 
-import jakarta.persistence.EntityNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.groups.Default;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @Slf4j
 @ExtendWith(MockitoExtension.class)
 class AccountsControllerTest {
-    final String expectedAccountIdRef = "4f464483-a1f0-4ce9-a19e-3c0f23e84a67";
+    final UUID expectedAccountIdRef = UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67");
 
     Address address = Address.builder().id(100L)
             .address1("100")
@@ -50,39 +70,109 @@ class AccountsControllerTest {
     @Mock
     AccountsHandler accountsHandler;
 
+    @Mock
+    AccountsBulkImporter accountsBulkImporter;
+
+    SimpleMeterRegistry meterRegistry;
+
     AccountsController controller;
 
+    AccountsControllerAdvice advice;
+
     @BeforeEach
     void setUp() {
-        controller = new AccountsController(accountsHandler);
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new AccountsController(accountsHandler, accountsBulkImporter,
+                new TimeOrderedAccountRefIdGenerator(), new ObjectMapper(), meterRegistry);
+        advice = new AccountsControllerAdvice(meterRegistry);
     }
 
     @Test void should_CreateNewAccountWithAddress() {
-        ResponseEntity<Accounts> accountCreateCommand = performCreate_Account_Given();
+        ResponseEntity<AccountsResponse> accountCreateCommand = performCreate_Account_Given();
         assertThat(accountCreateCommand).isNotNull();
         assertThat(accountCreateCommand.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
         assertThat(accountCreateCommand.getBody()).isNotNull();
-        Accounts accountCreated = accountCreateCommand.getBody();
-        assertThat(accountCreated).hasFieldOrProperty("addresses");
+        AccountsResponse accountCreated = accountCreateCommand.getBody();
+        assertThat(accountCreated.addresses()).containsExactly(AddressResponse.of(address));
     }
 
     @Test void shouldNot_CreateNewAccount_whenEmailIsInvalid() {
         performCreate_Account_WithEmailException();
-        ResponseEntity<Accounts> createdAccount = controller.create(accountEmailSpace);
+        assertThatThrownBy(() -> controller.create(accountEmailSpace)).isInstanceOf(EmailNotValidException.class);
+        ResponseEntity<Void> createdAccount = advice.badRequest(new EmailNotValidException("invalid"), handler("create"));
         assertThat(createdAccount.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
     }
+    @Test void shouldAnswerConflict_forADuplicateEmailAddress() {
+        DuplicateEmailException duplicate = new DuplicateEmailException("Email address is already registered");
+        when(accountsHandler.create(account)).thenThrow(duplicate);
+        assertThatThrownBy(() -> controller.create(account)).isSameAs(duplicate);
+        assertThat(advice.duplicateEmailAddress(duplicate, handler("create")).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(409));
+        assertThat(duplicate.getStackTrace()).isEmpty();
+    }
+    @Test void shouldAnswerConflict_onlyForTheEmailAddressKey() {
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("could not execute statement",
+                new SQLIntegrityConstraintViolationException("Duplicate entry 'taken@duke.com' for key 'accounts.uc_accounts_emailaddress'"));
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("could not execute statement",
+                new SQLIntegrityConstraintViolationException("Column 'city' cannot be null"));
+        assertThat(advice.integrityViolation(duplicate, handler("create")).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(409));
+        assertThat(advice.integrityViolation(notNull, handler("update")).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+    }
+    @Test void shouldNot_CreateNewAccount_whenAccountFailsValidation() {
+        AccountsValidationException invalid = new AccountsValidationException(
+                AccountsHandlerTest.validator.validate(Accounts.builder().firstName("D").build(), Default.class, Accounts.Assigned.class));
+        when(accountsHandler.create(account)).thenThrow(invalid);
+        assertThatThrownBy(() -> controller.create(account)).isSameAs(invalid);
+
+        ResponseEntity<ValidationErrorResponse> response = advice.validationFailed(invalid, handler("create"));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().violations()).extracting(ValidationErrorResponse.Violation::field)
+                .contains("firstName", "lastName", "emailAddress", "accountRefId");
+    }
+    @Test void should_BulkCreateAccounts() {
+        InputStream body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        BulkImportReport report = new BulkImportReport(1, 1, 0,
+                List.of(new BulkImportReport.Result(0, BulkImportReport.Status.CREATED, 1L, expectedAccountIdRef, null)));
+        when(accountsBulkImporter.importAccounts(body)).thenReturn(report);
+        ResponseEntity<BulkImportReport> response = controller.bulkCreate(body);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(response.getBody()).isSameAs(report);
+    }
+    @Test void shouldNot_LookupAccounts_withNoneOrTooManyIdentifiers() {
+        List<Long> tooMany = LongStream.rangeClosed(1, AccountsLookup.MAX_SIZE + 1).boxed().toList();
+        assertThat(controller.lookup(new AccountsLookup.Request(null, null)).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+        assertThat(controller.lookup(new AccountsLookup.Request(tooMany, List.of())).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+        verify(accountsHandler, never()).lookup(any(), any());
+
+        AccountsLookup lookup = AccountsLookup.of(Set.of(1L), Set.of(), List.of(account));
+        when(accountsHandler.lookup(Set.of(1L), Set.of())).thenReturn(lookup);
+        ResponseEntity<AccountsLookup.Response> response = controller.lookup(new AccountsLookup.Request(List.of(1L, 1L), null));
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(response.getBody()).isEqualTo(AccountsLookup.Response.of(lookup));
+        assertThat(response.getBody().ids()).containsEntry(1L, AccountsResponse.of(account));
+    }
     @Test void should_FindAllAccounts() {
-        ResponseEntity<Set<Accounts>> allAccounts = performFindAll_Accounts_Given();
+        ResponseEntity<CursorPage<AccountsResponse>> allAccounts = performFindAll_Accounts_Given();
         assertThat(allAccounts).isNotNull();
         assertThat(allAccounts.getBody()).isNotNull();
-        Set<Accounts> accountsFound = allAccounts.getBody();
-        assertThat(accountsFound).hasSize(1);
+        CursorPage<AccountsResponse> accountsFound = allAccounts.getBody();
+        assertThat(accountsFound.items()).hasSize(1);
+        assertThat(accountsFound.nextCursor()).isNull();
+    }
+    @Test void should_CapPageLimit_forFindAll() {
+        when(accountsHandler.findAll(10L, 1000)).thenReturn(new CursorPage<>(List.of(account), null));
+        assertThat(controller.findAll(10L, 50_000).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        verify(accountsHandler).findAll(10L, 1000);
+    }
+    @Test void shouldNot_FindAllAccounts_whenLimitIsNotPositive() {
+        assertThat(controller.findAll(null, 0).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+        verifyNoInteractions(accountsHandler);
     }
     @Test void should_FindAllAccount_ByID() {
-        ResponseEntity<Accounts> findOneAccountCommand = performFindOne_Account_Given(1L);
+        ResponseEntity<AccountsResponse> findOneAccountCommand = performFindOne_Account_Given(1L);
         assertThat(findOneAccountCommand).isNotNull();
         assertThat(findOneAccountCommand.getBody()).isNotNull();
-        Accounts accountOfOne = findOneAccountCommand.getBody();
+        AccountsResponse accountOfOne = findOneAccountCommand.getBody();
 
         assertThat(accountOfOne).hasFieldOrPropertyWithValue("id",1L)
                 .hasFieldOrPropertyWithValue("firstName","Minimal")
@@ -91,22 +181,104 @@ class AccountsControllerTest {
     }
 
     @Test void should_FindAccountByRefId() {
-        ResponseEntity<Accounts> findOneAccountByRefIdCommand = performFindOne_Account_ByRefId_Given(expectedAccountIdRef);
+        ResponseEntity<AccountsResponse> findOneAccountByRefIdCommand = performFindOne_Account_ByRefId_Given(expectedAccountIdRef);
         assertThat(findOneAccountByRefIdCommand).isNotNull();
     }
 
     @Test void should_UpdateExisting_Account() {
-        Accounts updatingThisAccount = performUpdate_Account_Given(1L);
-        updatingThisAccount.setEmailAddress("updatedemail@test.com");
-        assertThat(updatingThisAccount.getEmailAddress()).isEqualTo(account.getEmailAddress());
+        AccountsResponse updatedAccount = performUpdate_Account_Given(1L);
+        assertThat(updatedAccount).isEqualTo(AccountsResponse.of(account));
+        assertThat(updatedAccount.emailAddress()).isEqualTo(account.getEmailAddress());
     }
     @Test void shouldNot_UpdateAccount_thatDoesNotExist() {
-        when(accountsHandler.update(1L, account)).thenThrow(EntityNotFoundException.class);
-        assertThat(controller.update(1L, account).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(400));
+        AccountsNotFoundException notFound = new AccountsNotFoundException("Account not updated for ID -> 1");
+        when(accountsHandler.update(1L, account, null)).thenThrow(notFound);
+        assertThatThrownBy(() -> controller.update(1L, account, null)).isSameAs(notFound);
+        assertThat(advice.notFound(notFound, handler("update")).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+    }
+
+    @Test void should_ReturnTheNewVersion_asETag() {
+        account.setVersion(3L);
+        when(accountsHandler.update(1L, account, 2L)).thenReturn(account);
+        assertThat(controller.update(1L, account, "\"2\"").getHeaders().getETag()).isEqualTo("\"3\"");
+    }
+
+    @Test void should_ReturnPreconditionFailed_forStaleIfMatch_andConflictWithout() {
+        OptimisticLockingFailureException stale = new OptimisticLockingFailureException("Account 1 is not at version 2");
+        when(accountsHandler.update(1L, account, 2L)).thenThrow(stale);
+        assertThatThrownBy(() -> controller.update(1L, account, "\"2\"")).isSameAs(stale);
+        when(accountsHandler.update(1L, account, AccountsETag.NO_MATCH)).thenThrow(stale);
+        assertThatThrownBy(() -> controller.update(1L, account, "W/\"2\"")).isSameAs(stale);
+
+        MockHttpServletRequest ifMatch = new MockHttpServletRequest("PUT", "/accounts/1");
+        ifMatch.addHeader("If-Match", "\"2\"");
+        assertThat(advice.versionConflict(stale, handler("update"), new ServletWebRequest(ifMatch)).getStatusCode())
+                .isEqualTo(HttpStatusCode.valueOf(412));
+        assertThat(advice.versionConflict(stale, handler("update"), request()).getStatusCode())
+                .isEqualTo(HttpStatusCode.valueOf(409));
+    }
+
+    @Test void should_PatchAccount_andRejectReadOnlyMembers() throws Exception {
+        account.setVersion(4L);
+        when(accountsHandler.patch(eq(1L), any(AccountsPatch.class), eq(null))).thenReturn(account);
+        ResponseEntity<AccountsResponse> patched = controller.patch(1L, new ObjectMapper().readTree("{\"lastName\":\"Patched\"}"), null);
+        assertThat(patched.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
+        assertThat(patched.getHeaders().getETag()).isEqualTo("\"4\"");
+
+        assertThatThrownBy(() -> controller.patch(1L, new ObjectMapper().readTree("{\"id\":2}"), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(advice.badRequest(new IllegalArgumentException("id is read-only"), handler("patch")).getStatusCode())
+                .isEqualTo(HttpStatusCode.valueOf(400));
+    }
+
+    @Test void should_AnswerNotModified_fromTheVersionAlone() {
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/accounts/1");
+        conditional.addHeader("If-None-Match", "\"5\"");
+        when(accountsHandler.findVersion(1L)).thenReturn(Optional.of(new AccountsVersion(5L, Instant.now())));
+
+        ResponseEntity<AccountsResponse> notModified = controller.findById(1L, new ServletWebRequest(conditional, new MockHttpServletResponse()));
+
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(304));
+        verify(accountsHandler, never()).findById(1L);
+    }
+
+    @Test void should_SendValidators_withTheAccount() {
+        Instant updated = Instant.parse("2026-01-02T03:04:05Z");
+        account.setVersion(6L);
+        account.setUpdateDateTime(updated);
+        when(accountsHandler.findById(1L)).thenReturn(Optional.of(account));
+
+        ResponseEntity<AccountsResponse> found = controller.findById(1L, request());
+
+        assertThat(found.getHeaders().getETag()).isEqualTo("\"6\"");
+        assertThat(found.getHeaders().getLastModified()).isEqualTo(updated.toEpochMilli());
+        verify(accountsHandler, never()).findVersion(1L);
+    }
+
+    @Test void should_AnswerNotFound_andCountMisses_withoutAnException() {
+        when(accountsHandler.findById(1L)).thenReturn(Optional.empty());
+        assertThat(controller.findById(1L, request()).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+        assertThat(controller.findAllAddressesForAccount(1L, request()).getStatusCode()).isEqualTo(HttpStatusCode.valueOf(404));
+        controller.findById(1L, request());
+        assertThat(meterRegistry.get(AccountsController.FAILURES)
+                .tag("operation", "findById")
+                .tag("exception", AccountsController.NOT_FOUND)
+                .counter().count()).isEqualTo(2.0);
+        verify(accountsHandler, never()).findAllAddressesForAccount(1L);
+    }
+
+    @Test void should_CountFailedRequests_byOperationAndException() {
+        AccountsNotFoundException notFound = new AccountsNotFoundException("Account not updated for ID -> 1");
+        advice.notFound(notFound, handler("patch"));
+        advice.notFound(notFound, handler("patch"));
+        assertThat(meterRegistry.get(AccountsController.FAILURES)
+                .tag("operation", "patch")
+                .tag("exception", "AccountsNotFoundException")
+                .counter().count()).isEqualTo(2.0);
     }
 
     @Test void shouldDeleteAccounts_withId1() {
-        ResponseEntity<Accounts> createAccountCmd = performCreate_Account_Given();
+        ResponseEntity<AccountsResponse> createAccountCmd = performCreate_Account_Given();
         assertThat(createAccountCmd).isNotNull();
         assertThat(createAccountCmd.getStatusCode()).isEqualTo(HttpStatusCode.valueOf(200));
         doNothing().when(accountsHandler).delete(1L);
@@ -115,7 +287,7 @@ class AccountsControllerTest {
     }
 
     // Helper Methods
-    private ResponseEntity<Accounts> performCreate_Account_Given() {
+    private ResponseEntity<AccountsResponse> performCreate_Account_Given() {
         when(accountsHandler.create(account)).thenReturn(account);
         return controller.create(account);
     }
@@ -123,36 +295,45 @@ class AccountsControllerTest {
         when(accountsHandler.create(accountEmailSpace)).thenThrow(EmailNotValidException.class);
     }
 
-    private ResponseEntity<Set<Accounts>> performFindAll_Accounts_Given() {
-        when(accountsHandler.findAll()).thenReturn(Set.of(account));
-        return controller.findAll();
+    private ResponseEntity<CursorPage<AccountsResponse>> performFindAll_Accounts_Given() {
+        when(accountsHandler.findAll(null, 100)).thenReturn(new CursorPage<>(List.of(account), null));
+        return controller.findAll(null, null);
     }
 
-    private ResponseEntity<Accounts> performFindOne_Account_Given(final Long accountId) {
+    private ResponseEntity<AccountsResponse> performFindOne_Account_Given(final Long accountId) {
         assertAccountId(accountId);
-        when(accountsHandler.findById(accountId)).thenReturn(account);
-        return controller.findById(accountId);
+        when(accountsHandler.findById(accountId)).thenReturn(Optional.of(account));
+        return controller.findById(accountId, request());
     }
 
-    private ResponseEntity<Accounts> performFindOne_Account_ByRefId_Given(final String accountRefId) {
+    private ResponseEntity<AccountsResponse> performFindOne_Account_ByRefId_Given(final UUID accountRefId) {
         assertAccountId(accountRefId);
-        when(accountsHandler.findByAccountIdRef(accountRefId)).thenReturn(account);
-        return controller.findByAccountIdRef(accountRefId);
+        when(accountsHandler.findByAccountIdRef(accountRefId)).thenReturn(Optional.of(account));
+        return controller.findByAccountIdRef(accountRefId, request());
     }
 
-    private Accounts performUpdate_Account_Given(final Long accountId) {
+    private AccountsResponse performUpdate_Account_Given(final Long accountId) {
         assertAccountId(accountId);
-        when(accountsHandler.update(accountId, account)).thenReturn(account);
-        ResponseEntity<Accounts> updateAccountCommand = controller.update(accountId, account);
+        when(accountsHandler.update(accountId, account, null)).thenReturn(account);
+        ResponseEntity<AccountsResponse> updateAccountCommand = controller.update(accountId, account, null);
         assertThat(updateAccountCommand).isNotNull();
         assertThat(updateAccountCommand.getBody()).isNotNull();
         return updateAccountCommand.getBody();
     }
 
+    private HandlerMethod handler(final String name) {
+        return new HandlerMethod(controller, Arrays.stream(AccountsController.class.getMethods())
+                .filter(method -> method.getName().equals(name)).findFirst().orElseThrow());
+    }
+
+    private static WebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
     private void assertAccountId(final Long id) {
         if (id != 1L) throw new IllegalArgumentException("Invalid account id");
     }
-    private void assertAccountId(final String id) {
+    private void assertAccountId(final UUID id) {
         if (id == null) throw new IllegalArgumentException("Invalid account id reference");
     }
 }
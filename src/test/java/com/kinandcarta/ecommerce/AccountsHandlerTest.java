@@ -1,27 +1,43 @@
 package com.kinandcarta.ecommerce;
 
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mockito;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class AccountsHandlerTest {
-    final String expectedAccountIdRef = "4f464483-a1f0-4ce9-a19e-3c0f23e84a67";
+    final UUID expectedAccountIdRef = UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67");
     AccountsRepository accountsRepository = Mockito.mock(AccountsRepository.class);
 
     AddressRepository addressRepository = Mockito.mock(AddressRepository.class);
 
+    AccountsOutbox outbox = Mockito.mock(AccountsOutbox.class);
+
+    EmailAddressFilter emailFilter;
+
+    static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     AccountsHandler accountsHandler;
 
     Address address = Address.builder().id(100L)
@@ -67,7 +83,9 @@ class AccountsHandlerTest {
                     Set.of(address, beachVacayDddress, shippingAddress)).build();
 
     @BeforeEach void setUp() {
-        accountsHandler = new AccountsHandler(accountsRepository);
+        emailFilter = new EmailAddressFilter(accountsRepository, 1000, 0.01);
+        accountsHandler = new AccountsHandler(accountsRepository, validator, new AccountsCache(100, Duration.ofMinutes(1)), outbox,
+                emailFilter);
     }
 
     @ParameterizedTest
@@ -106,23 +124,139 @@ class AccountsHandlerTest {
     }
 
     @Test
-    void shouldThrowException_whenAccountNotFound() {
-        when(accountsRepository.findById(1L)).thenThrow(EntityNotFoundException.class);
-        assertThatThrownBy(() -> accountsHandler.findById(1L)).isInstanceOf(EntityNotFoundException.class);
+    void shouldReturnAllViolations_whenAccountIsInvalid() {
+        Accounts invalid = Accounts.builder()
+                .accountRefId(expectedAccountIdRef)
+                .firstName("D")
+                .lastName("L")
+                .emailAddress("not an email")
+                .build();
+        Set<ConstraintViolation<Accounts>> violations = accountsHandler.validate(invalid);
+        assertThat(violations).extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactlyInAnyOrder("firstName", "lastName", "emailAddress");
+    }
+
+    @Test
+    void shouldReturnAddressViolations_withTheAccounts() {
+        Accounts invalid = Accounts.builder()
+                .accountRefId(expectedAccountIdRef)
+                .firstName("DukeFirstName")
+                .lastName("DukeLastName")
+                .emailAddress("dukefirst.last@enjoy.com")
+                .addresses(Set.of(Address.builder().state("FL").postalCode("33000").country("US").build()))
+                .build();
+        Set<ConstraintViolation<Accounts>> violations = accountsHandler.validate(invalid);
+        assertThat(violations).extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactlyInAnyOrder("addresses[].address1", "addresses[].city");
+        assertThatThrownBy(() -> accountsHandler.create(invalid)).isInstanceOf(AccountsValidationException.class);
+        verify(accountsRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotCreateAccount_whenAccountIsInvalid() {
+        Accounts invalid = Accounts.builder().accountRefId(expectedAccountIdRef).firstName("D").build();
+        assertThatThrownBy(() -> accountsHandler.create(invalid))
+                .isInstanceOf(AccountsValidationException.class)
+                .satisfies(e -> assertThat(((AccountsValidationException) e).getViolations()).isNotEmpty());
+        verify(accountsRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotUpdateAccount_whenAccountIsInvalid() {
+        Accounts invalid = Accounts.builder().accountRefId(expectedAccountIdRef).emailAddress("dukefirst.last@enjoy.com").build();
+        assertThatThrownBy(() -> accountsHandler.update(1L, invalid)).isInstanceOf(AccountsValidationException.class);
+        verify(accountsRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldLookupAccounts_fromTheCacheFirst_andLoadOnlyTheRest() {
+        UUID otherRef = UUID.randomUUID();
+        Accounts other = Accounts.builder().id(2L).accountRefId(otherRef).firstName("Other").lastName("Account")
+                .emailAddress("other@enjoy.com").addresses(Set.of()).build();
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
+        when(accountsRepository.findAllByIdsOrAccountRefIds(List.of(2L, 3L), List.of())).thenReturn(List.of(other));
+        accountsHandler.findById(1L);
+
+        AccountsLookup lookup = accountsHandler.lookup(List.of(1L, 2L, 3L), List.of(expectedAccountIdRef));
+
+        assertThat(lookup.ids()).containsOnlyKeys(1L, 2L).containsEntry(1L, account).containsEntry(2L, other);
+        assertThat(lookup.refs()).containsOnlyKeys(expectedAccountIdRef);
+        assertThat(lookup.missingIds()).containsExactly(3L);
+        assertThat(lookup.missingRefs()).isEmpty();
+        verify(accountsRepository).findAllByIdsOrAccountRefIds(List.of(2L, 3L), List.of());
+    }
+
+    @Test
+    void shouldPrecheckEmailAddress_onlyOnAProbableHit() {
+        when(accountsRepository.save(account)).thenReturn(account);
+        accountsHandler.create(account);
+        verify(accountsRepository, never()).existsByEmailAddress(any());
+        assertThat(emailFilter.mightContain("DukeFirst.Last@enjoy.com ")).isTrue();
+
+        when(accountsRepository.existsByEmailAddress("dukefirst.last@enjoy.com")).thenReturn(true);
+        assertThatThrownBy(() -> accountsHandler.create(account)).isInstanceOf(DuplicateEmailException.class);
+        verify(accountsRepository, times(1)).save(any());
+    }
+
+    @Test
+    void shouldReturnEmpty_whenAccountNotFound() {
+        when(accountsRepository.findById(1L)).thenReturn(Optional.empty());
+        when(accountsRepository.findByNaturalId(expectedAccountIdRef)).thenReturn(Optional.empty());
+        assertThat(accountsHandler.findById(1L)).isEmpty();
+        assertThat(accountsHandler.findByAccountIdRef(expectedAccountIdRef)).isEmpty();
+        assertThat(accountsHandler.findAllAddressesForAccount(1L)).isEmpty();
     }
 
     @Test
     void shouldDeleteAccount() {
-        doNothing().when(accountsRepository).deleteById(1L);
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
         accountsHandler.delete(1L);
-        verify(accountsRepository).deleteById(1L);
+        verify(accountsRepository).delete(account);
+        verify(outbox).record(AccountsChangeEvent.Type.DELETED, account);
+    }
+
+    @Test
+    void shouldRecordChangeEvents_forCreateAndUpdate() {
+        when(accountsRepository.save(account)).thenReturn(account);
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
+        when(accountsRepository.saveAndFlush(account)).thenReturn(account);
+
+        accountsHandler.create(account);
+        accountsHandler.update(1L, account);
+
+        verify(outbox).record(AccountsChangeEvent.Type.CREATED, account);
+        verify(outbox).record(AccountsChangeEvent.Type.UPDATED, account);
     }
 
     @Test
     void shouldFindAllAccounts() {
-        when(accountsRepository.findAll()).thenReturn(List.of(account));
-        Set<Accounts> accounts = accountsHandler.findAll();
-        assertThat(accounts).isNotNull().hasSize(1);
+        when(accountsRepository.findByIdGreaterThan(0L, PageRequest.of(0, 11, Sort.by(Sort.Direction.ASC, "id"))))
+                .thenReturn(List.of(account));
+        CursorPage<Accounts> accounts = accountsHandler.findAll(null, 10);
+        assertThat(accounts.items()).isNotNull().hasSize(1);
+        assertThat(accounts.nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldReturnNextCursor_whenMoreAccountsRemain() {
+        Accounts second = Accounts.builder().id(2L).accountRefId(UUID.fromString("1c7e7a52-53b4-4a8e-9d0e-2f1a4b7f0a02")).build();
+        Accounts third = Accounts.builder().id(3L).accountRefId(UUID.fromString("1c7e7a52-53b4-4a8e-9d0e-2f1a4b7f0a03")).build();
+        when(accountsRepository.findByIdGreaterThan(0L, PageRequest.of(0, 3, Sort.by(Sort.Direction.ASC, "id"))))
+                .thenReturn(List.of(account, second, third));
+        CursorPage<Accounts> accounts = accountsHandler.findAll(0L, 2);
+        assertThat(accounts.items()).containsExactly(account, second);
+        assertThat(accounts.nextCursor()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldStreamAllAccounts() {
+        List<Accounts> streamed = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<Consumer<Accounts>>getArgument(0).accept(account);
+            return null;
+        }).when(accountsRepository).streamAll(any());
+        accountsHandler.streamAll(streamed::add);
+        assertThat(streamed).containsExactly(account);
     }
 
     @Test
@@ -139,15 +273,15 @@ class AccountsHandlerTest {
 
     @Test
     void shouldNot_UpdateAccountThatDoesNot_Exist() {
-        when(accountsRepository.findById(100L)).thenThrow(EntityNotFoundException.class);
+        when(accountsRepository.findById(1L)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> accountsHandler.update(1L, account))
-                .isInstanceOf(EntityNotFoundException.class);
+                .isInstanceOf(AccountsNotFoundException.class);
     }
 
     @Test
     void shouldUpdateAccount() {
         when(accountsRepository.findById(100L)).thenReturn(Optional.ofNullable(account));
-        when(accountsRepository.save(account)).thenReturn(account);
+        when(accountsRepository.saveAndFlush(account)).thenReturn(account);
         Accounts foundAccountForUser = accountsHandler.update(100L, account);
         assertThat(foundAccountForUser).isEqualTo(account);
         foundAccountForUser.setEmailAddress("updatedemail@testing.net");
@@ -158,7 +292,7 @@ class AccountsHandlerTest {
     void shouldFindAllAddresses_forAccount() {
         when(accountsRepository.findById(1L))
                 .thenReturn(Optional.ofNullable(accountMultipleAddresses));
-        Set<Address> allAccountAddresses = accountsHandler.findAllAddressesForAccount(1L);
+        List<Address> allAccountAddresses = accountsHandler.findAllAddressesForAccount(1L).orElseThrow();
         assertThat(allAccountAddresses).isNotNull().hasSize(3);
     }
 
@@ -166,6 +300,7 @@ class AccountsHandlerTest {
     void shouldUpdateTheAddresses_forGivenAccount() {
         when(accountsRepository.findById(100L)).thenReturn(Optional.ofNullable(account));
         when(addressRepository.findById(100L)).thenReturn(Optional.ofNullable(address));
+        when(accountsRepository.saveAndFlush(account)).thenReturn(account);
         // Okay account 100L has address -> 100L, update the address
         Accounts foundAccount100L = accountsHandler.update(100L, account);
         assertThat(foundAccount100L).isEqualTo(account);
@@ -188,19 +323,102 @@ class AccountsHandlerTest {
         assertThat(address).isEqualTo(updateAddress);
     }
 
+    @Test
+    void shouldUpdateFieldsOnly_withoutLoadingTheAccount_whenNoAddressesAreGiven() {
+        Accounts fieldsOnly = Accounts.builder().firstName("Renamed")
+                .lastName("CreateAccount").emailAddress("dukefirst.last@enjoy.com").build();
+        when(accountsRepository.updateFields(eq(1L), eq("Renamed"), eq("CreateAccount"), eq("dukefirst.last@enjoy.com"), any(), eq(3L)))
+                .thenReturn(1);
+        when(accountsRepository.findByIdBypassingCache(1L)).thenReturn(Optional.of(account));
+
+        assertThat(accountsHandler.update(1L, fieldsOnly, 3L)).isSameAs(account);
+        verify(accountsRepository, never()).saveAndFlush(any());
+        verify(accountsRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldReportConflict_whenFieldsOnlyUpdateMatchesNoVersion() {
+        Accounts fieldsOnly = Accounts.builder().firstName("Renamed")
+                .lastName("CreateAccount").emailAddress("dukefirst.last@enjoy.com").build();
+        when(accountsRepository.updateFields(any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(accountsRepository.existsById(1L)).thenReturn(true);
+        assertThatThrownBy(() -> accountsHandler.update(1L, fieldsOnly, 3L)).isInstanceOf(OptimisticLockingFailureException.class);
+
+        when(accountsRepository.existsById(1L)).thenReturn(false);
+        assertThatThrownBy(() -> accountsHandler.update(1L, fieldsOnly, 3L)).isInstanceOf(AccountsNotFoundException.class);
+    }
+
+    @Test
+    void shouldNotUpdateAddresses_whenVersionDoesNotMatch() {
+        account.setVersion(4L);
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
+        assertThatThrownBy(() -> accountsHandler.update(1L, accountMultipleAddresses, 3L))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(accountsRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldDiffAddresses_keepingMatchedRowsAndAddingNewOnes() {
+        Address current = Address.builder().id(7L).address1("7 Old Road").city("Food Forest City").state("FL")
+                .postalCode("33000").country("US").build();
+        Address dropped = Address.builder().id(8L).address1("8 Gone Road").city("Food Forest City").state("FL")
+                .postalCode("33000").country("US").build();
+        Accounts stored = Accounts.builder().id(1L).accountRefId(expectedAccountIdRef).firstName("Minimal")
+                .lastName("CreateAccount").emailAddress("dukefirst.last@enjoy.com").version(2L)
+                .addresses(new HashSet<>(Set.of(current, dropped))).build();
+        Address moved = Address.builder().id(7L).address1("7 New Road").city("Food Forest City").state("FL")
+                .postalCode("33000").country("US").build();
+        Address added = Address.builder().address1("9 Added Road").city("Food Forest City").state("FL")
+                .postalCode("33000").country("US").build();
+        Accounts requested = Accounts.builder().firstName("Minimal")
+                .lastName("CreateAccount").emailAddress("dukefirst.last@enjoy.com")
+                .addresses(Set.of(moved, added)).build();
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(accountsRepository.saveAndFlush(stored)).thenReturn(stored);
+
+        Accounts updated = accountsHandler.update(1L, requested, 2L);
+
+        assertThat(updated.getAddresses()).containsExactlyInAnyOrder(current, added);
+        assertThat(current.getAddress1()).isEqualTo("7 New Road");
+        assertThat(updated.getUpdateDateTime()).isNotNull();
+    }
+
     @Test
     void shouldFindAccount_byId() {
         when(accountsRepository.findById(2L))
                 .thenReturn(Optional.ofNullable(accountMultipleAddresses));
-        Accounts accountFoundWithId2 = accountsHandler.findById(2L);
-        assertThat(accountFoundWithId2).isNotNull();
+        assertThat(accountsHandler.findById(2L)).containsSame(accountMultipleAddresses);
+    }
+
+    @Test
+    void shouldServeRepeatedReads_fromCache() {
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
+        assertThat(accountsHandler.findById(1L)).containsSame(account);
+        assertThat(accountsHandler.findById(1L)).containsSame(account);
+        assertThat(accountsHandler.findByAccountIdRef(expectedAccountIdRef)).containsSame(account);
+        verify(accountsRepository, times(1)).findById(1L);
+        verify(accountsRepository, never()).findByNaturalId(any());
+    }
+
+    @Test
+    void shouldEvictCachedAccount_onUpdateAndDelete() {
+        when(accountsRepository.findByNaturalId(expectedAccountIdRef)).thenReturn(Optional.of(account));
+        when(accountsRepository.findById(1L)).thenReturn(Optional.of(account));
+        accountsHandler.findByAccountIdRef(expectedAccountIdRef);
+
+        accountsHandler.update(1L, account);
+        accountsHandler.findByAccountIdRef(expectedAccountIdRef);
+        verify(accountsRepository, times(2)).findByNaturalId(expectedAccountIdRef);
+
+        accountsHandler.delete(1L);
+        accountsHandler.findByAccountIdRef(expectedAccountIdRef);
+        verify(accountsRepository, times(3)).findByNaturalId(expectedAccountIdRef);
     }
 
     @Test
     void shouldFindOne_Account_ByRefId() {
-        when(accountsRepository.findAccountsByAccountRefId(expectedAccountIdRef))
+        when(accountsRepository.findByNaturalId(expectedAccountIdRef))
                 .thenReturn(Optional.ofNullable(accountMultipleAddresses));
-        Accounts accountsFound = accountsHandler.findByAccountIdRef(expectedAccountIdRef);
-        assertThat(accountsFound).isNotNull();
+        assertThat(accountsHandler.findByAccountIdRef(expectedAccountIdRef)).containsSame(accountMultipleAddresses);
     }
 }
@@ -0,0 +1,71 @@
+package com.kinandcarta.ecommerce;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class AccountsMetricsTests {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    AccountsRepository accountsRepository;
+
+    @Test void should_RegisterEndpointHandlerRepositoryAndPoolMeters() throws Exception {
+        Accounts account = accountsRepository.save(Accounts.builder()
+                .accountRefId(UUID.randomUUID())
+                .firstName("Duke")
+                .lastName("Metrics")
+                .emailAddress("duke@metrics.com")
+                .build());
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/" + account.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/" + Long.MAX_VALUE).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        assertThat(meterRegistry.get("http.server.requests").tag("uri", "/accounts/{id}").tag("status", "200").timer().count())
+                .isEqualTo(1);
+        // a miss is an empty Optional, not an exception
+        assertThat(meterRegistry.get("accounts.handler").tag("method", "findById").tag("exception", "none").timer().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("spring.data.repository.invocations")
+                .tag("repository", "AccountsRepository").tag("method", "findById").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(AccountsController.FAILURES).tag("operation", "findById")
+                .tag("exception", AccountsController.NOT_FOUND).counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts.byId").functionCounters()).isNotEmpty();
+        assertThat(meterRegistry.get("hikaricp.connections.active").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hibernate.query.executions").functionCounter()).isNotNull();
+    }
+
+    @Test void should_ExposePrometheusScrapeEndpoint_withLatencyHistograms() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("accounts_handler_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("hikaricp_connections")));
+    }
+}
@@ -0,0 +1,54 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountsPatchTest {
+    static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test void shouldKeepOnlyTheTouchedMembers() throws Exception {
+        AccountsPatch patch = patch("{\"emailAddress\":\"renamed@duke.com\"}");
+        assertThat(patch.fields()).containsOnlyKeys("emailAddress");
+        assertThat(patch.addresses()).isNull();
+    }
+
+    @Test void shouldTreatNullAddresses_asRemovingThemAll() throws Exception {
+        assertThat(patch("{\"addresses\":null}").addresses()).isEmpty();
+        assertThat(patch("{\"addresses\":[{\"id\":7,\"city\":\"Ood City\"}]}").addresses())
+                .singleElement().hasFieldOrPropertyWithValue("id", 7L).hasFieldOrPropertyWithValue("city", "Ood City");
+    }
+
+    @Test void shouldValidateOnlyTheTouchedFields() throws Exception {
+        assertThat(patch("{\"lastName\":\"Duke\"}").validate(validator)).isEmpty();
+        assertThat(patch("{\"emailAddress\":\"not an email\",\"firstName\":null}").validate(validator))
+                .extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactlyInAnyOrder("emailAddress", "firstName");
+    }
+
+    @Test void shouldValidateThePatchedAddresses_byIndex() throws Exception {
+        String valid = "{\"address1\":\"1 Duke Street\",\"city\":\"Tampa\",\"state\":\"FL\",\"postalCode\":\"33602\",\"country\":\"US\"}";
+        assertThat(patch("{\"addresses\":[" + valid + "]}").validate(validator)).isEmpty();
+        assertThat(patch("{\"addresses\":[" + valid + ",{\"address1\":\"2 Duke Street\",\"city\":\"T\",\"state\":\"FL\",\"postalCode\":\"33602\"}]}")
+                .validate(validator))
+                .extracting(violation -> violation.getPropertyPath().toString())
+                .containsExactlyInAnyOrder("addresses[1].city", "addresses[1].country");
+    }
+
+    @Test void shouldRejectReadOnlyUnknownAndMistypedMembers() {
+        assertThatThrownBy(() -> patch("{\"version\":3}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> patch("{\"accountRefId\":\"4f464483-a1f0-4ce9-a19e-3c0f23e84a67\"}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> patch("{\"nickname\":\"duke\"}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> patch("{\"firstName\":42}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> patch("[]")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private AccountsPatch patch(final String json) throws Exception {
+        return AccountsPatch.of(objectMapper.readTree(json), objectMapper);
+    }
+}
@@ -0,0 +1,74 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountsResponseTest {
+    // Spring Boot's defaults write dates as ISO-8601 strings
+    final ObjectMapper entityMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    final ObjectMapper responseMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).modulesToInstall(new BlackbirdModule()).build();
+
+    @Test void shouldWriteTheSameJson_asTheEntity() throws Exception {
+        Accounts account = Accounts.builder()
+                .id(1L)
+                .accountRefId(UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67"))
+                .firstName("Duke")
+                .lastName("Response")
+                .emailAddress("duke@response.com")
+                .addresses(new LinkedHashSet<>(List.of(address(100L, "100 Noworries Avenue"), address(105L, "105 Ood Nutrients Drive"))))
+                .createDateTime(Instant.parse("2026-01-02T03:04:05.123456Z"))
+                .updateDateTime(Instant.parse("2026-01-03T03:04:05Z"))
+                .version(2L)
+                .build();
+
+        String entity = entityMapper.writeValueAsString(account);
+        String response = responseMapper.writeValueAsString(AccountsResponse.of(account));
+
+        assertThat(response).isEqualTo(entity);
+    }
+
+    @Test void shouldWriteTimestamps_likeIsoInstant() throws Exception {
+        for (String instant : List.of("2026-01-02T03:04:05Z", "2026-01-02T03:04:05.100Z", "2026-12-31T23:59:59.000001Z",
+                "1970-01-01T00:00:00.000000001Z", "0001-02-03T04:05:06.789Z", "+10000-01-01T00:00:00Z", "-0001-01-01T00:00:00Z")) {
+            Accounts account = Accounts.builder().id(1L).createDateTime(Instant.parse(instant)).build();
+            assertThat(responseMapper.writeValueAsString(AccountsResponse.of(account)))
+                    .contains("\"createDateTime\":\"" + instant + "\"")
+                    .isEqualTo(entityMapper.writeValueAsString(account));
+        }
+    }
+
+    @Test void shouldWriteTimestamps_asNumbers_whenConfigured() throws Exception {
+        ObjectMapper timestamps = Jackson2ObjectMapperBuilder.json().build();
+        Accounts account = Accounts.builder().id(1L).createDateTime(Instant.parse("2026-01-02T03:04:05.123456Z")).build();
+        assertThat(timestamps.writeValueAsString(AccountsResponse.of(account))).isEqualTo(timestamps.writeValueAsString(account));
+    }
+
+    @Test void shouldKeepMissingAddresses_null() throws Exception {
+        Accounts account = Accounts.builder().id(1L).firstName("Duke").build();
+        assertThat(responseMapper.writeValueAsString(AccountsResponse.of(account)))
+                .isEqualTo(entityMapper.writeValueAsString(account));
+    }
+
+    private Address address(final Long id, final String street) {
+        return Address.builder().id(id)
+                .address1(street)
+                .address2("")
+                .city("Food Forest City")
+                .state("FL")
+                .province("")
+                .postalCode("33000")
+                .country("US").build();
+    }
+}
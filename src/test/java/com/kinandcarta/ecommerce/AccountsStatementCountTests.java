@@ -0,0 +1,309 @@
+package com.kinandcarta.ecommerce;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// NOTES: guards against N+1 regressions, every endpoint is exercised end to end (including Jackson walking
+// the addresses) and the number of JDBC statements Hibernate prepared is asserted.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AccountsStatementCountTests {
+    private static final int ACCOUNTS = 12;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    AccountsRepository accountsRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    Statistics statistics;
+    List<Accounts> accounts;
+
+    @BeforeEach void setUp() {
+        List<Accounts> given = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            given.add(Accounts.builder()
+                    .accountRefId(UUID.randomUUID())
+                    .firstName("Duke" + i)
+                    .lastName("Statements")
+                    .emailAddress("duke" + i + "@statements.com")
+                    .addresses(Set.of(address("1" + i + " Noworries Avenue"), address("2" + i + " Ood Nutrients Drive")))
+                    .build());
+        }
+        accounts = accountsRepository.saveAll(given);
+        // counts below are for a cold second-level cache, the cache tests warm it themselves
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach void tearDown() {
+        accountsRepository.deleteAll();
+    }
+
+    @Test void findById_shouldUseOneStatement() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}", accounts.get(0).getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addresses.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test void conditionalReads_shouldAnswerNotModified_fromOneStatementWithoutLoadingTheAccount() throws Exception {
+        Accounts account = accounts.get(0);
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}", account.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(eTag).isEqualTo("\"0\"");
+
+        // one version query each, read from the database so a change made on another instance is seen
+        for (String uri : List.of("/accounts/{id}", "/accounts/{id}/addresses")) {
+            statistics.clear();
+            mockMvc.perform(MockMvcRequestBuilders.get(uri, account.getId()).header("If-None-Match", eTag))
+                    .andExpect(MockMvcResultMatchers.status().isNotModified())
+                    .andExpect(MockMvcResultMatchers.content().string(""));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+        }
+
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}/reference", account.getAccountRefId()).header("If-None-Match", eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}", account.getId()).header("If-None-Match", "\"7\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag));
+    }
+
+    @Test void findByAccountIdRef_shouldUseOneStatementForTheNaturalIdAndOneForAddresses() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}/reference", accounts.get(0).getAccountRefId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addresses.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getNaturalIdQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test void lookup_shouldUseOneStatementForTheAccountsAndOneForTheirAddresses() throws Exception {
+        Accounts first = accounts.get(0);
+        Accounts second = accounts.get(1);
+        Accounts third = accounts.get(2);
+        UUID unknown = UUID.randomUUID();
+        mockMvc.perform(MockMvcRequestBuilders.post("/accounts/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + first.getId() + "," + second.getId() + ",-1],"
+                                + "\"refs\":[\"" + second.getAccountRefId() + "\",\"" + third.getAccountRefId() + "\",\"" + unknown + "\"]}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids['" + first.getId() + "'].addresses.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.refs.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.refs['" + third.getAccountRefId() + "'].id").value(third.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.refs['" + third.getAccountRefId() + "'].addresses.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missingIds").value(-1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missingRefs[0]").value(unknown.toString()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test void findAllAddressesForAccount_shouldUseOneStatement() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}/addresses", accounts.get(0).getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test void findAll_shouldUseOneStatementForThePageAndOneForItsAddresses() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts").param("limit", "10").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[9].addresses.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test void search_shouldUseOneStatementForThePageIdsAndOneForTheAccounts() throws Exception {
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/search")
+                        .param("firstName", "Duke1").param("limit", "2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].firstName").value("Duke1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].addresses.length()").value(2))
+                .andReturn();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        Long next = objectMapper.readTree(first.getResponse().getContentAsString()).get("nextCursor").asLong();
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/search")
+                        .param("firstName", "Duke1").param("after", String.valueOf(next)).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[0].firstName").value("Duke11"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test void search_shouldMatchAddressCriteria_oncePerAccount() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/search")
+                        .param("lastName", "Stat").param("city", "Food").param("state", "FL").param("postalCode", "330")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(ACCOUNTS));
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/search").param("emailAddress", "duke%").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(0));
+        mockMvc.perform(MockMvcRequestBuilders.get("/accounts/search").param("limit", "10").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test void streamAll_shouldUseOneStatement() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/accounts").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        String ndjson = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(ndjson.split("\n")).hasSize(ACCOUNTS).allSatisfy(line -> assertThat(line).contains("Noworries", "Ood Nutrients"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test void update_withoutAddresses_shouldUseOneUpdateAndOneSelect() throws Exception {
+        Accounts account = accounts.get(0);
+        mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", account.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Match", "\"0\"")
+                        .content("{\"firstName\":\"Renamed\","
+                                + "\"lastName\":\"Statements\",\"emailAddress\":\"" + account.getEmailAddress() + "\"}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addresses.length()").value(2));
+        // the update, the re-read and the outbox row
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", account.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("If-Match", "\"0\"")
+                        .content("{\"firstName\":\"Stale\","
+                                + "\"lastName\":\"Statements\",\"emailAddress\":\"" + account.getEmailAddress() + "\"}"))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test void update_withOneChangedAddress_shouldOnlyWriteThatRow() throws Exception {
+        Accounts account = accounts.get(0);
+        List<Address> addresses = new ArrayList<>(account.getAddresses());
+        addresses.get(0).setCity("Moved City");
+        account.setAddresses(Set.copyOf(addresses));
+        statistics.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", account.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(account)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""));
+        // load with addresses, the address row, the account row (version), the outbox row
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityDeleteCount()).isZero();
+        assertThat(statistics.getCollectionRecreateCount()).isZero();
+    }
+
+    @Test void patch_ofOneField_shouldUseOneUpdateAndOneSelect() throws Exception {
+        Accounts account = accounts.get(0);
+        mockMvc.perform(MockMvcRequestBuilders.patch("/accounts/{id}", account.getId())
+                        .contentType(AccountsPatch.MEDIA_TYPE)
+                        .content("{\"emailAddress\":\"patched@statements.com\"}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.emailAddress").value("patched@statements.com"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.firstName").value(account.getFirstName()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.addresses.length()").value(2));
+        // the update, the re-read and the outbox row
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        mockMvc.perform(MockMvcRequestBuilders.patch("/accounts/{id}", account.getId())
+                        .contentType(AccountsPatch.MEDIA_TYPE)
+                        .content("{\"emailAddress\":\"not an email\"}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.violations.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.violations[0].field").value("emailAddress"));
+
+        // an invalid address is rejected before anything is read or written
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.patch("/accounts/{id}", account.getId())
+                        .contentType(AccountsPatch.MEDIA_TYPE)
+                        .content("{\"addresses\":[{\"address1\":\"1 Patched Street\",\"state\":\"FL\",\"postalCode\":\"33602\",\"country\":\"US\"}]}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.violations.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.violations[0].field").value("addresses[0].city"));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test void secondLevelCache_shouldServeRepeatedLoads_withoutStatements() {
+        Accounts account = accounts.get(0);
+        assertThat(accountsRepository.findByNaturalId(account.getAccountRefId())).get()
+                .satisfies(found -> assertThat(found.getAddresses()).hasSize(2));
+        assertThat(accountsRepository.findById(account.getId())).isPresent();
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(accountsRepository.findByNaturalId(account.getAccountRefId())).get()
+                .satisfies(found -> assertThat(found.getAddresses()).hasSize(2));
+        assertThat(accountsRepository.findById(account.getId())).get()
+                .satisfies(found -> assertThat(found.getAddresses()).hasSize(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+        assertThat(statistics.getNaturalIdCacheHitCount()).isPositive();
+        assertThat(statistics.getCacheRegionStatistics("accounts").getHitCount()).isPositive();
+        assertThat(statistics.getCacheRegionStatistics("accounts-addresses").getHitCount()).isPositive();
+    }
+
+    @Test void secondLevelCache_shouldServeTheReplacedAddresses_afterUpdate() throws Exception {
+        Accounts account = accounts.get(0);
+        accountsRepository.findByNaturalId(account.getAccountRefId());
+        account.setAddresses(Set.of(address("30 Replaced Street")));
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", account.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(account)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(accountsRepository.findByNaturalId(account.getAccountRefId())).get()
+                .satisfies(found -> assertThat(found.getAddresses()).extracting(Address::getAddress1).containsExactly("30 Replaced Street"));
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(accountsRepository.findById(account.getId())).get()
+                .satisfies(found -> assertThat(found.getAddresses()).extracting(Address::getAddress1).containsExactly("30 Replaced Street"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    private Address address(final String street) {
+        return Address.builder()
+                .address1(street)
+                .city("Food Forest City")
+                .state("FL")
+                .postalCode("33000")
+                .country("US").build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountsTest {
+    final UUID expectedAccountIdRef = UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67");
+
+    @Test
+    void shouldBeEqual_whenAccountRefIdMatches() {
+        Accounts managed = Accounts.builder().id(1L).accountRefId(expectedAccountIdRef).firstName("Managed").build();
+        Accounts detached = Accounts.builder().id(1L).accountRefId(expectedAccountIdRef).firstName("Detached").build();
+        assertThat(managed).isEqualTo(detached).hasSameHashCodeAs(detached);
+    }
+
+    @Test
+    void shouldNotBeEqual_whenAccountRefIdMissing() {
+        Accounts first = Accounts.builder().id(1L).build();
+        Accounts second = Accounts.builder().id(1L).build();
+        assertThat(first).isNotEqualTo(second);
+        assertThat(first).isEqualTo(first);
+    }
+
+    @Test
+    void shouldKeepHashCode_whenIdIsAssignedOnPersist() {
+        Accounts account = Accounts.builder().accountRefId(expectedAccountIdRef).build();
+        Set<Accounts> accounts = new HashSet<>(Set.of(account));
+        account.setId(10L);
+        assertThat(accounts).contains(account);
+    }
+
+    @Test
+    void shouldSpreadHashCodes_acrossAccounts() {
+        Set<Integer> hashes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            hashes.add(Accounts.builder().accountRefId(new UUID(0L, i)).build().hashCode());
+        }
+        assertThat(hashes).hasSizeGreaterThan(990);
+    }
+}
@@ -3,6 +3,7 @@ package com.kinandcarta.ecommerce;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,25 +11,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(controllers = AccountsController.class)
-@Import(AccountsHandler.class)
+@Import({AccountsHandler.class, AccountsCache.class, EmailAddressFilter.class, TimeOrderedAccountRefIdGenerator.class, SimpleMeterRegistry.class})
 class AccountsWebIntegrationTests {
-	final String expectedAccountIdRef = "4f464483-a1f0-4ce9-a19e-3c0f23e84a67";
+	final UUID expectedAccountIdRef = UUID.fromString("4f464483-a1f0-4ce9-a19e-3c0f23e84a67");
 
 	@Autowired
 	MockMvc mockMvc;
@@ -36,6 +47,15 @@ class AccountsWebIntegrationTests {
 	@MockBean
 	AccountsRepository accountsRepository;
 
+	@MockBean
+	AccountsBulkImporter accountsBulkImporter;
+
+	@MockBean
+	AccountsOutbox accountsOutbox;
+
+	@Autowired
+	EmailAddressFilter emailAddressFilter;
+
 	ObjectMapper mapper = new ObjectMapper();
 
 	@BeforeEach void setUp() {
@@ -100,15 +120,51 @@ class AccountsWebIntegrationTests {
 						)
 				).emailAddress("updatedfirstlast@duke.com")
 				.build();
-		when(accountsRepository.save(initial)).thenReturn(initial);
+		// the posted account gets a generated accountRefId, so it is never equal to initial
+		when(accountsRepository.save(any(Accounts.class))).thenReturn(initial);
 
 		mockMvc.perform(MockMvcRequestBuilders.post("/accounts")
 						.accept(MediaType.APPLICATION_JSON)
 						.contentType(MediaType.APPLICATION_JSON)
 						.content((json)))
 				.andDo(print())
-				.andExpect(MockMvcResultMatchers.status().isOk());
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.addresses.length()").value(2));
+
+	}
+	@Test void shouldReturnViolations_whenCreatingAnInvalidAccount() throws Exception {
+		final String json = mapper.writeValueAsString(Accounts.builder()
+				.firstName("D")
+				.lastName("DukeLastName")
+				.emailAddress("not-an-email")
+				.build());
 
+		mockMvc.perform(MockMvcRequestBuilders.post("/accounts")
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.status").value(400))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.violations.length()").value(2))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.violations[?(@.field == 'firstName')].message")
+						.value("First Name must be between 2 and 200 characters"));
+	}
+	@Test void shouldBulkCreateAccounts_fromNdjson() throws Exception {
+		given(accountsBulkImporter.importAccounts(any())).willReturn(new BulkImportReport(2, 1, 1, List.of(
+				new BulkImportReport.Result(0, BulkImportReport.Status.CREATED, 1L, expectedAccountIdRef, null),
+				new BulkImportReport.Result(1, BulkImportReport.Status.INVALID, null, null,
+						List.of(new ValidationErrorResponse.Violation("emailAddress", "Invalid e-mail address."))))));
+
+		mockMvc.perform(MockMvcRequestBuilders.post("/accounts/bulk")
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_NDJSON)
+						.content("{\"firstName\":\"Duke\"}\n{\"firstName\":\"Duchess\"}\n"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.created").value(1))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.results[0].status").value("CREATED"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.results[0].errors").doesNotExist())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.results[1].errors[0].field").value("emailAddress"));
 	}
 	@Test void shouldUpdateAnAccount() throws Exception {
 		Accounts account = Accounts.builder()
@@ -149,7 +205,7 @@ class AccountsWebIntegrationTests {
 						.accountRefId(expectedAccountIdRef)
 						.firstName("UpdatedFirstName")
 						.lastName("UpdatedLastName")
-						.emailAddress("updatedfirst.last@duke.com").addresses(
+						.emailAddress("updatedfirst.last@duke.com").version(0L).addresses(
 								Set.of(
 										Address.builder()
 												.id(100L)
@@ -172,17 +228,52 @@ class AccountsWebIntegrationTests {
 								)
 						).build()));
 
+		when(accountsRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
 		mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", 20L)
 				.accept(MediaType.APPLICATION_JSON)
 				.contentType(MediaType.APPLICATION_JSON)
 				.content((json)))
 				.andDo(print())
-				.andExpect(MockMvcResultMatchers.status().isOk());
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\""))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.firstName").value("DukeFirstName"));
 	}
 	@Test void shouldDeleteAnAccount() throws Exception {
 		mockMvc.perform(MockMvcRequestBuilders.delete("/accounts/{id}", 1L))
 				.andExpect(MockMvcResultMatchers.status().isAccepted());
 	}
+	@Test void shouldAnswerNotFound_forAMissingAccount() throws Exception {
+		when(accountsRepository.findById(404L)).thenReturn(Optional.empty());
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}", 404L).accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}/addresses", 404L).accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+	}
+	@Test void shouldMapUpdateFailures_toNotFoundConflictAndPreconditionFailed() throws Exception {
+		// no addresses, a fields-only UPDATE
+		final String json = mapper.writeValueAsString(Accounts.builder()
+				.firstName("DukeFirstName")
+				.lastName("DukeLastName")
+				.emailAddress("dukefirstlast@duke.com")
+				.build());
+		when(accountsRepository.updateFields(any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+		when(accountsRepository.existsById(30L)).thenReturn(false);
+		mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", 30L)
+						.contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+
+		when(accountsRepository.existsById(30L)).thenReturn(true);
+		mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", 30L)
+						.contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isConflict());
+		mockMvc.perform(MockMvcRequestBuilders.put("/accounts/{id}", 30L)
+						.header("If-Match", "\"3\"")
+						.contentType(MediaType.APPLICATION_JSON).content(json))
+				.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+	}
 	@Test void shouldFindAnAccount_byId() throws Exception {
 		when(accountsRepository.findById(1L)).thenReturn(
 				Optional.ofNullable(Accounts.builder()
@@ -202,8 +293,48 @@ class AccountsWebIntegrationTests {
 
 	}
 
+	@Test void shouldReject_aDuplicateEmailAddress_withConflict() throws Exception {
+		final String json = mapper.writeValueAsString(Accounts.builder()
+				.firstName("DukeFirstName")
+				.lastName("DukeLastName")
+				.emailAddress("taken@duke.com")
+				.build());
+		emailAddressFilter.put("Taken@Duke.com");
+		when(accountsRepository.existsByEmailAddress("taken@duke.com")).thenReturn(true);
+
+		mockMvc.perform(MockMvcRequestBuilders.post("/accounts")
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json))
+				.andExpect(MockMvcResultMatchers.status().isConflict());
+		verify(accountsRepository, never()).save(any());
+	}
+
+	@Test void shouldFindAnAccount_byEmailAddress_evenWhenTheFilterHasNotSeenIt() throws Exception {
+		// created on another instance, this instance's filter has not been rebuilt since
+		when(accountsRepository.findByEmailAddress("found@duke.com")).thenReturn(
+				Optional.of(Accounts.builder()
+						.id(7L)
+						.accountRefId(expectedAccountIdRef)
+						.firstName("DukeFirstName")
+						.lastName("DukeLastName")
+						.emailAddress("found@duke.com")
+						.version(0L).build()));
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts/by-email").param("email", "found@duke.com")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\""))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.id").value(7));
+
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts/by-email").param("email", "unknown@duke.com")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isNotFound());
+		verify(accountsRepository).findByEmailAddress("unknown@duke.com");
+	}
+
 	@Test void shouldFindAnAccount_byAccountRefId() throws Exception {
-		when(accountsRepository.findAccountsByAccountRefId(expectedAccountIdRef)).thenReturn(
+		when(accountsRepository.findByNaturalId(expectedAccountIdRef)).thenReturn(
 				Optional.ofNullable(Accounts.builder()
 						.accountRefId(expectedAccountIdRef)
 						.firstName("DukeFirstName")
@@ -215,13 +346,20 @@ class AccountsWebIntegrationTests {
 						.contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
 				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.accountRefId").value(expectedAccountIdRef.toString()))
 				.andExpect(MockMvcResultMatchers.jsonPath("$.firstName").exists())
 				.andExpect(MockMvcResultMatchers.jsonPath("$.lastName").exists())
 				.andExpect(MockMvcResultMatchers.jsonPath("$.emailAddress").exists());
 	}
 
+	@Test void shouldReject_malformedAccountRefId() throws Exception {
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{id}/reference", "not-a-uuid")
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+
 	@Test void shouldFind_AllAccounts() throws Exception {
-		when(accountsRepository.findAll()).thenReturn(
+		when(accountsRepository.findByIdGreaterThan(0L, PageRequest.of(0, 101, Sort.by(Sort.Direction.ASC, "id")))).thenReturn(
 				List.of(Accounts.builder()
 						.accountRefId(expectedAccountIdRef)
 				.firstName("DukeFirstName")
@@ -231,7 +369,46 @@ class AccountsWebIntegrationTests {
 				.accept(MediaType.APPLICATION_JSON)
 				.contentType(MediaType.APPLICATION_JSON))
 				.andDo(print())
-				.andExpect(MockMvcResultMatchers.status().isOk());
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.items[0].firstName").value("DukeFirstName"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+	}
+
+	@Test void shouldFind_AccountsPage_afterCursor() throws Exception {
+		when(accountsRepository.findByIdGreaterThan(20L, PageRequest.of(0, 2, Sort.by(Sort.Direction.ASC, "id")))).thenReturn(
+				List.of(Accounts.builder().id(21L).accountRefId(expectedAccountIdRef).build(),
+						Accounts.builder().id(22L).accountRefId(UUID.fromString("1c7e7a52-53b4-4a8e-9d0e-2f1a4b7f0a22")).build()));
+		mockMvc.perform(MockMvcRequestBuilders.get("/accounts")
+				.param("after", "20")
+				.param("limit", "1")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(1))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.items[0].id").value(21))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(21));
+	}
+
+	@Test void shouldStream_AllAccounts_asNdjson() throws Exception {
+		doAnswer(invocation -> {
+			Consumer<Accounts> consumer = invocation.getArgument(0);
+			consumer.accept(Accounts.builder().id(1L).accountRefId(expectedAccountIdRef).firstName("First").build());
+			consumer.accept(Accounts.builder().id(2L).accountRefId(UUID.fromString("1c7e7a52-53b4-4a8e-9d0e-2f1a4b7f0a02")).firstName("Second").build());
+			return null;
+		}).when(accountsRepository).streamAll(any());
+
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/accounts")
+						.accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+				.andExpect(r -> {
+					String[] lines = r.getResponse().getContentAsString().split("\n");
+					assertThat(lines).hasSize(2);
+					assertThat(lines[1]).contains("\"firstName\":\"Second\"");
+				});
 	}
 
 	@Test void shouldFindAllAddresses_forAccountId() throws Exception {
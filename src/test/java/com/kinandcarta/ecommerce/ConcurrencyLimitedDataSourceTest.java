@@ -0,0 +1,88 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitedDataSourceTest {
+    @Mock
+    DataSource target;
+
+    @Mock
+    Connection connection;
+
+    ConcurrencyLimitedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(20));
+    }
+
+    @Test void should_HoldPermit_untilConnectionIsClosed() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        Connection held = dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isZero();
+
+        held.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        verify(connection).close();
+    }
+
+    @Test void should_FailFast_whenNoPermitFreesUpInTime() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        CompletableFuture.supplyAsync(this::connect).join();
+
+        assertThatThrownBy(() -> dataSource.getConnection()).isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test void should_HandOutANestedConnection_withoutAPermit() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        Connection transaction = dataSource.getConnection();
+        // the id generator's block fetch inside the transaction
+        Connection idBlock = dataSource.getConnection();
+        idBlock.close();
+        assertThat(dataSource.availablePermits()).isZero();
+
+        transaction.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        assertThat(CompletableFuture.supplyAsync(this::connect).join()).isNotNull();
+        assertThatThrownBy(() -> dataSource.getConnection()).isInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test void should_ReleaseOnce_whenClosedTwice() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        Connection held = dataSource.getConnection();
+        held.close();
+        held.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test void should_ReleasePermit_whenTargetFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        assertThatThrownBy(() -> dataSource.getConnection()).hasMessage("pool exhausted");
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    private Connection connect() {
+        try {
+            return dataSource.getConnection();
+        } catch (final SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolSizingTest {
+    @Test void should_SizeThePool_fromDatabaseCoresAndSpindles() {
+        assertThat(ConnectionPoolSizing.poolSize(8, 1, 1, 151, 10)).isEqualTo(17);
+    }
+
+    @Test void should_ShareThePool_betweenInstances() {
+        assertThat(ConnectionPoolSizing.poolSize(8, 1, 4, 151, 10)).isEqualTo(5);
+        // never less than two writers and the id generators' connections
+        assertThat(ConnectionPoolSizing.poolSize(1, 0, 8, 151, 10)).isEqualTo(5);
+    }
+
+    @Test void should_StayBelowMaxConnections() {
+        assertThat(ConnectionPoolSizing.poolSize(64, 4, 2, 101, 10)).isEqualTo(45);
+        assertThat(ConnectionPoolSizing.poolSize(64, 4, 1, 100, 20)).isEqualTo(80);
+    }
+
+    @Test void should_SetPoolSizeAndMinimumIdle_whenNotConfigured() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("accounts.db.pool.database-cores", "4")
+                .withProperty("accounts.db.pool.effective-spindles", "2");
+        new ConnectionPoolSizing().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty(ConnectionPoolSizing.MAXIMUM_POOL_SIZE, Integer.class)).isEqualTo(10);
+        assertThat(environment.getProperty(ConnectionPoolSizing.MINIMUM_IDLE, Integer.class)).isEqualTo(10);
+        assertThat(environment.getProperty(ConnectionPoolSizing.LIMITER_PERMITS, Integer.class)).isEqualTo(7);
+    }
+
+    @Test void should_KeepTheDefaultPoolSize_untilDatabaseCoresAreSet() {
+        MockEnvironment environment = new MockEnvironment();
+        new ConnectionPoolSizing().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty(ConnectionPoolSizing.MAXIMUM_POOL_SIZE, Integer.class)).isEqualTo(20);
+        assertThat(environment.getProperty(ConnectionPoolSizing.LIMITER_PERMITS, Integer.class)).isEqualTo(17);
+    }
+
+    @Test void should_KeepAConfiguredPoolSize() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(ConnectionPoolSizing.MAXIMUM_POOL_SIZE, "30")
+                .withProperty("accounts.db.pool.database-cores", "4");
+        new ConnectionPoolSizing().postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty(ConnectionPoolSizing.MAXIMUM_POOL_SIZE)).isEqualTo("30");
+        assertThat(environment.containsProperty(ConnectionPoolSizing.MINIMUM_IDLE)).isFalse();
+        assertThat(environment.getProperty(ConnectionPoolSizing.LIMITER_PERMITS, Integer.class)).isEqualTo(27);
+    }
+}
@@ -0,0 +1,48 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class EmailAddressFilterTest {
+    AccountsRepository accountsRepository = Mockito.mock(AccountsRepository.class);
+
+    @Test void shouldContain_everyAddedAddress_normalized() {
+        EmailAddressFilter filter = new EmailAddressFilter(accountsRepository, 10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("Duke" + i + "@Example.com"));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain(" duke" + i + "@example.com"));
+        assertThat(filter.mightContain(null)).isFalse();
+    }
+
+    @Test void shouldKeepFalsePositives_nearTheConfiguredRate() {
+        EmailAddressFilter filter = new EmailAddressFilter(accountsRepository, 10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("duke" + i + "@example.com"));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("other" + i + "@example.com")).count();
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test void shouldRebuild_fromTheTable_droppingRemovedAddresses() {
+        EmailAddressFilter filter = new EmailAddressFilter(accountsRepository, 1_000, 0.01);
+        filter.put("deleted@example.com");
+        when(accountsRepository.count()).thenReturn(1L);
+        doAnswer(invocation -> {
+            ((Consumer<String>) invocation.getArgument(0)).accept("Stored@example.com");
+            return null;
+        }).when(accountsRepository).streamEmailAddresses(any());
+
+        filter.rebuild();
+
+        assertThat(filter.mightContain("stored@example.com")).isTrue();
+        assertThat(filter.mightContain("deleted@example.com")).isFalse();
+    }
+}
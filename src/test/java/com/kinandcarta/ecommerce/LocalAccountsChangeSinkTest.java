@@ -0,0 +1,76 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalAccountsChangeSinkTest {
+    @Mock
+    AccountsOutboxRepository repository;
+
+    @Test void shouldPageAfterSince_inSequenceOrder() {
+        LocalAccountsChangeSink sink = new LocalAccountsChangeSink(repository);
+        when(repository.findNextSequence()).thenReturn(Optional.of(4L));
+        when(repository.findFirstSequence()).thenReturn(Optional.of(1L));
+        when(repository.findBySequenceGreaterThanOrderBySequenceAsc(0, PageRequest.of(0, 2))).thenReturn(List.of(event(1L), event(2L)));
+        when(repository.findBySequenceGreaterThanOrderBySequenceAsc(3, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        LocalAccountsChangeSink.AccountsChanges first = sink.changesSince(0, 2);
+        assertThat(first.events()).extracting(AccountsChangeEvent::sequence).containsExactly(1L, 2L);
+        assertThat(first.next()).isEqualTo(2);
+        assertThat(sink.changesSince(3, 2).events()).isEmpty();
+        assertThat(sink.changesSince(3, 2).next()).isEqualTo(3);
+    }
+
+    @Test void shouldReportGone_forPrunedOrUnknownSequences() {
+        LocalAccountsChangeSink sink = new LocalAccountsChangeSink(repository);
+        when(repository.findNextSequence()).thenReturn(Optional.of(5L));
+        when(repository.findFirstSequence()).thenReturn(Optional.of(2L));
+
+        assertThatThrownBy(() -> sink.changesSince(0, 10)).isInstanceOf(LocalAccountsChangeSink.ChangesGoneException.class);
+        // a sequence not handed out yet
+        assertThatThrownBy(() -> sink.changesSince(9, 10)).isInstanceOf(LocalAccountsChangeSink.ChangesGoneException.class);
+
+        // everything pruned, the end of the feed is still a valid position
+        when(repository.findFirstSequence()).thenReturn(Optional.empty());
+        assertThat(sink.changesSince(4, 10).events()).isEmpty();
+    }
+
+    @Test void shouldCompleteWaiters_whenTheFeedMoves_andOnlyQueryWhileSomeoneWaits() {
+        LocalAccountsChangeSink sink = new LocalAccountsChangeSink(repository);
+        sink.refresh();
+        verify(repository, never()).findNextSequence();
+
+        when(repository.findNextSequence()).thenReturn(Optional.of(1L));
+        CompletableFuture<Void> next = sink.nextPublish();
+        next.thenRun(() -> { });
+        sink.refresh();
+        assertThat(next).isNotDone();
+
+        // relayed here or by another instance
+        when(repository.findNextSequence()).thenReturn(Optional.of(2L));
+        sink.refresh();
+        assertThat(next).isDone();
+        assertThat(sink.nextPublish()).isNotDone();
+    }
+
+    private static AccountsOutboxEvent event(final Long sequence) {
+        return AccountsOutboxEvent.builder().id(sequence).sequence(sequence).type(AccountsChangeEvent.Type.UPDATED)
+                .accountId(sequence).accountRefId(UUID.randomUUID()).version(1L).createDateTime(Instant.now()).payload("{}").build();
+    }
+}
@@ -0,0 +1,275 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:reactive-schema.sql"})
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "reactive"})
+class ReactiveAccountsControllerTests {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReactiveAccountsHandler accountsHandler;
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    @Test void should_CreateAndFindAccount_withAddresses_byIdAndReference() {
+        Accounts created = create(account(address("1 Reactive Way"), address("2 Reactive Way")));
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getAccountRefId()).isNotNull();
+
+        Accounts found = webTestClient.get().uri("/accounts/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody(Accounts.class).returnResult().getResponseBody();
+        assertThat(found.getEmailAddress()).isEqualTo(created.getEmailAddress());
+        assertThat(found.getAddresses()).extracting(Address::getAddress1).containsExactlyInAnyOrder("1 Reactive Way", "2 Reactive Way");
+
+        webTestClient.get().uri("/accounts/{ref}/reference", created.getAccountRefId()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(created.getId().intValue());
+    }
+
+    @Test void should_AnswerNotModified_forACurrentETag() {
+        Accounts created = create(account(address("1 Cached Street")));
+        String eTag = webTestClient.get().uri("/accounts/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("Last-Modified")
+                .returnResult(Accounts.class).getResponseHeaders().getETag();
+        assertThat(eTag).isEqualTo("\"0\"");
+
+        webTestClient.get().uri("/accounts/{id}", created.getId()).ifNoneMatch(eTag).exchange().expectStatus().isNotModified();
+        webTestClient.get().uri("/accounts/{ref}/reference", created.getAccountRefId()).ifNoneMatch(eTag).exchange()
+                .expectStatus().isNotModified();
+        webTestClient.get().uri("/accounts/{id}/addresses", created.getId()).ifNoneMatch(eTag).exchange()
+                .expectStatus().isNotModified();
+        webTestClient.get().uri("/accounts/{id}", created.getId()).ifNoneMatch("\"9\"").exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test void should_ReturnNotFound_forUnknownAccount() {
+        webTestClient.get().uri("/accounts/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/accounts/{ref}/reference", UUID.randomUUID()).exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/accounts/{id}/addresses", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test void should_RejectInvalidAccount_withViolations() {
+        Accounts invalid = account();
+        invalid.setFirstName("X");
+        webTestClient.post().uri("/accounts").contentType(MediaType.APPLICATION_JSON).bodyValue(invalid).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.violations[0].field").isEqualTo("firstName");
+    }
+
+    @Test void should_UpdateAccount_andReplaceItsAddresses() {
+        Accounts created = create(account(address("1 Old Street")));
+        Accounts changes = account(address("9 New Street"));
+        changes.setFirstName("Renamed");
+
+        webTestClient.put().uri("/accounts/{id}", created.getId()).contentType(MediaType.APPLICATION_JSON).bodyValue(changes)
+                .exchange().expectStatus().isOk();
+
+        webTestClient.get().uri("/accounts/{id}/addresses", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Address.class).value(addresses ->
+                        assertThat(addresses).extracting(Address::getAddress1).containsExactly("9 New Street"));
+        webTestClient.get().uri("/accounts/{id}", created.getId()).exchange()
+                .expectBody().jsonPath("$.firstName").isEqualTo("Renamed");
+    }
+
+    @Test void should_UpdateFieldsOnly_withIfMatch_andRejectAStaleETag() {
+        Accounts created = create(account(address("1 Kept Street")));
+        Accounts changes = account();
+        changes.setAddresses(null);
+
+        webTestClient.put().uri("/accounts/{id}", created.getId()).contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"0\"").bodyValue(changes)
+                .exchange().expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"")
+                .expectBody().jsonPath("$.addresses[0].address1").isEqualTo("1 Kept Street");
+
+        webTestClient.put().uri("/accounts/{id}", created.getId()).contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", "\"0\"").bodyValue(changes)
+                .exchange().expectStatus().isEqualTo(412);
+    }
+
+    @Test void should_PatchOneField_keepingTheRest() {
+        Accounts created = create(account(address("1 Patched Street")));
+
+        webTestClient.patch().uri("/accounts/{id}", created.getId()).contentType(MediaType.valueOf(AccountsPatch.MEDIA_TYPE))
+                .bodyValue("{\"lastName\":\"Patched\"}")
+                .exchange().expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"")
+                .expectBody()
+                .jsonPath("$.lastName").isEqualTo("Patched")
+                .jsonPath("$.firstName").isEqualTo(created.getFirstName())
+                .jsonPath("$.addresses[0].address1").isEqualTo("1 Patched Street");
+
+        webTestClient.patch().uri("/accounts/{id}", created.getId()).contentType(MediaType.valueOf(AccountsPatch.MEDIA_TYPE))
+                .bodyValue("{\"lastName\":\"X\"}")
+                .exchange().expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.violations[0].field").isEqualTo("lastName");
+
+        webTestClient.patch().uri("/accounts/{id}", created.getId()).contentType(MediaType.valueOf(AccountsPatch.MEDIA_TYPE))
+                .bodyValue("{\"addresses\":[{\"address1\":\"2 Patched Street\",\"state\":\"FL\",\"postalCode\":\"33602\",\"country\":\"US\"}]}")
+                .exchange().expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.violations[0].field").isEqualTo("addresses[0].city");
+        webTestClient.get().uri("/accounts/{id}", created.getId()).exchange().expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"")
+                .expectBody().jsonPath("$.addresses[0].address1").isEqualTo("1 Patched Street");
+    }
+
+    @Test void shouldNot_UpdateAccount_thatDoesNotExist() {
+        webTestClient.put().uri("/accounts/{id}", Long.MAX_VALUE).contentType(MediaType.APPLICATION_JSON).bodyValue(account())
+                .exchange().expectStatus().isNotFound();
+        webTestClient.patch().uri("/accounts/{id}", Long.MAX_VALUE).contentType(MediaType.valueOf(AccountsPatch.MEDIA_TYPE))
+                .bodyValue("{\"lastName\":\"Renamed\"}")
+                .exchange().expectStatus().isNotFound();
+    }
+
+    @Test void shouldReject_aDuplicateEmailAddress_withConflict() {
+        Accounts created = create(account());
+        Accounts duplicate = account();
+        duplicate.setEmailAddress(created.getEmailAddress());
+        webTestClient.post().uri("/accounts").contentType(MediaType.APPLICATION_JSON).bodyValue(duplicate)
+                .exchange().expectStatus().isEqualTo(409);
+    }
+
+    @Test void should_RecordAChangeEvent_forEveryWrite() {
+        Accounts created = create(account(address("1 Outbox Street")));
+        webTestClient.patch().uri("/accounts/{id}", created.getId()).contentType(MediaType.valueOf(AccountsPatch.MEDIA_TYPE))
+                .bodyValue("{\"lastName\":\"Renamed\"}")
+                .exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/accounts/{id}", created.getId()).exchange().expectStatus().isAccepted();
+
+        List<String> events = databaseClient.sql("SELECT type, version FROM accounts_outbox WHERE account_id = :id ORDER BY id")
+                .bind("id", created.getId())
+                .map((row, metadata) -> row.get("type", String.class) + ":" + row.get("version", Long.class))
+                .all().collectList().block();
+        assertThat(events).containsExactly("CREATED:0", "UPDATED:1", "DELETED:2");
+    }
+
+    @Test void should_DeleteAccount_withItsAddresses() {
+        Accounts created = create(account(address("1 Gone Street")));
+        webTestClient.delete().uri("/accounts/{id}", created.getId()).exchange().expectStatus().isAccepted();
+        webTestClient.get().uri("/accounts/{id}", created.getId()).exchange().expectStatus().isNotFound();
+
+        Long orphans = databaseClient.sql("SELECT COUNT(*) AS total FROM address WHERE street_address = '1 Gone Street'")
+                .map((row, metadata) -> row.get("total", Long.class)).one().block();
+        assertThat(orphans).isZero();
+    }
+
+    @Test void should_PageAccounts_byCursor() {
+        for (int i = 0; i < 3; i++) create(account(address(i + " Paged Street")));
+
+        CursorPage<Accounts> first = webTestClient.get().uri("/accounts?limit=2").exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPage<Accounts>>() {}).returnResult().getResponseBody();
+        assertThat(first.items()).hasSize(2);
+        assertThat(first.nextCursor()).isEqualTo(first.items().get(1).getId());
+
+        CursorPage<Accounts> second = webTestClient.get().uri("/accounts?after={after}&limit=2", first.nextCursor()).exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPage<Accounts>>() {}).returnResult().getResponseBody();
+        assertThat(second.items()).isNotEmpty().allSatisfy(account ->
+                assertThat(account.getId()).isGreaterThan(first.nextCursor()));
+
+        webTestClient.get().uri("/accounts?limit=0").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test void should_StreamAllAccounts_asNdjson_withTheirAddresses() {
+        Accounts created = create(account(address("1 Stream Street"), address("2 Stream Street")));
+
+        Flux<Accounts> stream = webTestClient.get().uri("/accounts").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(Accounts.class).getResponseBody();
+        StepVerifier.create(stream.filter(account -> account.getId().equals(created.getId())))
+                .assertNext(account -> assertThat(account.getAddresses()).hasSize(2))
+                .verifyComplete();
+    }
+
+    @Test void should_AllocateUniqueIds_acrossIdBlocks_underConcurrency() {
+        int accounts = ReactiveIdAllocator.ALLOCATION_SIZE * 2 + 10;
+        List<Long> ids = Flux.range(0, accounts)
+                .flatMap(i -> accountsHandler.create(withRef(account())), 16)
+                .map(Accounts::getId)
+                .collectList()
+                .block();
+        assertThat(Set.copyOf(ids)).hasSize(accounts);
+    }
+
+    @Test void should_LookupAccounts_byIdAndReference_listingTheMisses() {
+        Accounts first = create(account(address("1 Lookup Lane")));
+        Accounts second = create(account(address("2 Lookup Lane"), address("3 Lookup Lane")));
+        UUID unknown = UUID.randomUUID();
+
+        webTestClient.post().uri("/accounts/lookup")
+                .bodyValue(new AccountsLookup.Request(List.of(first.getId(), -1L), List.of(second.getAccountRefId(), unknown)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.ids['" + first.getId() + "'].emailAddress").isEqualTo(first.getEmailAddress())
+                .jsonPath("$.refs['" + second.getAccountRefId() + "'].addresses.length()").isEqualTo(2)
+                .jsonPath("$.missingIds[0]").isEqualTo(-1)
+                .jsonPath("$.missingRefs[0]").isEqualTo(unknown.toString());
+
+        webTestClient.post().uri("/accounts/lookup").bodyValue(new AccountsLookup.Request(List.of(), null)).exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private Accounts create(final Accounts account) {
+        return webTestClient.post().uri("/accounts").contentType(MediaType.APPLICATION_JSON).bodyValue(account).exchange()
+                .expectStatus().isOk()
+                .expectBody(Accounts.class).returnResult().getResponseBody();
+    }
+
+    private static Accounts withRef(final Accounts account) {
+        account.setAccountRefId(UUID.randomUUID());
+        return account;
+    }
+
+    private static Accounts account(final Address... addresses) {
+        int n = SEQUENCE.incrementAndGet();
+        return Accounts.builder()
+                .firstName("Duke" + n)
+                .lastName("Reactive")
+                .emailAddress("duke" + n + "@reactive.com")
+                .addresses(Set.of(addresses))
+                .build();
+    }
+
+    private static Address address(final String street) {
+        return Address.builder()
+                .address1(street)
+                .address2("")
+                .city("Food Forest City")
+                .state("FL")
+                .province("")
+                .postalCode("33000")
+                .country("US")
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedAccountRefIdGeneratorTest {
+    final TimeOrderedAccountRefIdGenerator generator = new TimeOrderedAccountRefIdGenerator();
+
+    @Test void should_GenerateVersion7RfcVariantUuids() {
+        UUID ref = generator.next();
+        assertThat(ref.version()).isEqualTo(7);
+        assertThat(ref.variant()).isEqualTo(2);
+    }
+
+    @Test void should_EncodeTimestampInLeadingBits() {
+        long epochMillis = 1_700_000_000_000L;
+        UUID ref = generator.next(epochMillis);
+        assertThat(ref.getMostSignificantBits() >>> 16).isEqualTo(epochMillis);
+    }
+
+    @Test void should_SortLaterReferencesAfterEarlierOnes() {
+        UUID earlier = generator.next(1_700_000_000_000L);
+        UUID later = generator.next(1_700_000_000_001L);
+        // UUID.compareTo is signed, compare the way the binary(16) column sorts
+        assertThat(earlier.toString()).isLessThan(later.toString());
+    }
+
+    @Test void should_NotRepeatWithinTheSameMillisecond() {
+        Set<UUID> refs = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            refs.add(generator.next(1_700_000_000_000L));
+        }
+        assertThat(refs).hasSize(10_000);
+    }
+
+    @Test void should_NotRepeatAcrossThreads() {
+        Set<UUID> refs = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 40_000).parallel().forEach(i -> refs.add(generator.next()));
+        assertThat(refs).hasSize(40_000);
+    }
+}
@@ -0,0 +1,43 @@
+package com.kinandcarta.ecommerce;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "accounts.threads.virtual=true", "accounts.db.pool.database-cores=8", "accounts.db.pool.effective-spindles=1"})
+@ActiveProfiles("test")
+class VirtualThreadsConfigurationTests {
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test void should_RunAsyncWork_onVirtualThreads() throws Exception {
+        Boolean virtual = applicationTaskExecutor.submitCompletable(() -> Thread.currentThread().isVirtual()).get();
+        assertThat(virtual).isTrue();
+    }
+
+    @Test void should_LimitDatabaseConcurrency_toThePoolSizeLessTheIdGeneratorConnections() {
+        assertThat(dataSource).isInstanceOf(ConcurrencyLimitedDataSource.class);
+        // (8 cores * 2) + 1 spindle, 3 kept for id block fetches
+        assertThat(((ConcurrencyLimitedDataSource) dataSource).availablePermits()).isEqualTo(14);
+    }
+
+    @Test void should_ServeRequests_onVirtualThreads() {
+        assertThat(restTemplate.getForEntity("/accounts", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
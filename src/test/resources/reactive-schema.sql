@@ -0,0 +1,54 @@
+-- H2 version of database/schema.sql for the reactive profile tests, R2DBC has no schema generation.
+CREATE TABLE IF NOT EXISTS address
+(
+    id             BIGINT                  NOT NULL PRIMARY KEY,
+    street_address VARCHAR(200) DEFAULT '' NOT NULL,
+    second_address VARCHAR(200) DEFAULT '' NULL,
+    city           VARCHAR(200) DEFAULT '' NOT NULL,
+    state          VARCHAR(2)   DEFAULT '' NOT NULL,
+    province       VARCHAR(200) DEFAULT '' NULL,
+    postal_code    VARCHAR(10)  DEFAULT '' NOT NULL,
+    country        VARCHAR(100) DEFAULT '' NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS accounts
+(
+    id             BIGINT                  NOT NULL PRIMARY KEY,
+    first_name     VARCHAR(200) DEFAULT '' NOT NULL,
+    last_name      VARCHAR(200) DEFAULT '' NOT NULL,
+    email_address  VARCHAR(200) DEFAULT '' NOT NULL,
+    account_ref_id BINARY(16)              NOT NULL,
+    created_dt     TIMESTAMP(6)            NULL,
+    updated_dt     TIMESTAMP(6)            NULL,
+    version        BIGINT       DEFAULT 0  NOT NULL,
+    CONSTRAINT uc_accounts_emailaddress UNIQUE (email_address),
+    CONSTRAINT uc_accounts_account_ref_id UNIQUE (account_ref_id)
+);
+
+CREATE TABLE IF NOT EXISTS id_generator
+(
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val      BIGINT       NULL
+);
+
+CREATE TABLE IF NOT EXISTS accounts_addresses
+(
+    accounts_id  BIGINT NOT NULL,
+    addresses_id BIGINT NOT NULL,
+    CONSTRAINT pk_accounts_addresses PRIMARY KEY (accounts_id, addresses_id),
+    CONSTRAINT uc_accounts_addresses_addresses UNIQUE (addresses_id),
+    CONSTRAINT fk_accadd_on_accounts FOREIGN KEY (accounts_id) REFERENCES accounts (id),
+    CONSTRAINT fk_accadd_on_address FOREIGN KEY (addresses_id) REFERENCES address (id)
+);
+
+CREATE TABLE IF NOT EXISTS accounts_outbox
+(
+    id             BIGINT       NOT NULL PRIMARY KEY,
+    type           VARCHAR(16)  NOT NULL,
+    account_id     BIGINT       NOT NULL,
+    account_ref_id BINARY(16)   NOT NULL,
+    version        BIGINT       NULL,
+    created_dt     TIMESTAMP(6) NOT NULL,
+    feed_sequence  BIGINT       NULL,
+    payload        CLOB         NULL
+);